@@ -11,8 +11,25 @@ public final class App {
 
     public static void main(String[] args) {
         try {
+            if (args.length > 0 && args[0].equals(ServerArguments.COMMAND)) {
+                ServerArguments serverArguments = ServerArguments.parse(args);
+                PackagingServer server = new PackagingServer(serverArguments.rootPath(), serverArguments.port(),
+                        serverArguments.maxJobs(), serverArguments.maxIo(), serverArguments.keepFinishedJobs());
+                Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+                server.start();
+                return;
+            }
+            if (args.length > 0 && args[0].equals(ExtractArguments.COMMAND)) {
+                ExtractArguments extractArguments = ExtractArguments.parse(args);
+                DossierIndex index = DossierIndex.read(DossierIndex.indexPath(extractArguments.zipPath()));
+                int count = index.extract(extractArguments.zipPath(), extractArguments.dossierId(), extractArguments.targetPath());
+                LOGGER.info("{} Dateien von Dossier {} nach {} extrahiert", count, extractArguments.dossierId(),
+                        extractArguments.targetPath());
+                return;
+            }
             CommandLineArguments arguments = CommandLineArguments.parse(args);
-            ImportPackager packager = new ImportPackager(arguments.rootPath(), arguments.packageSizeBytes());
+            ImportPackager packager = new ImportPackager(arguments.rootPath(), arguments.packageSizeBytes(),
+                    arguments.options());
             packager.execute(arguments.municipality(), arguments.dataType(), arguments.runNumber());
         } catch (IllegalArgumentException ex) {
             LOGGER.error("Invalid arguments: {}", ex.getMessage());
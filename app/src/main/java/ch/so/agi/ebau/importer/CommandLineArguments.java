@@ -9,18 +9,21 @@ final class CommandLineArguments {
     private final int runNumber;
     private final Path rootPath;
     private final long packageSizeBytes;
+    private final PackagingOptions options;
 
-    private CommandLineArguments(String municipality, DataType dataType, int runNumber, Path rootPath, long packageSizeBytes) {
+    private CommandLineArguments(String municipality, DataType dataType, int runNumber, Path rootPath, long packageSizeBytes,
+            PackagingOptions options) {
         this.municipality = municipality;
         this.dataType = dataType;
         this.runNumber = runNumber;
         this.rootPath = rootPath;
         this.packageSizeBytes = packageSizeBytes;
+        this.options = options;
     }
 
     public static CommandLineArguments parse(String[] args) {
         if (args.length < 3) {
-            throw new IllegalArgumentException("Usage: <Gemeinde> <Datentyp> <Laufnummer> [--root=/pfad] [--packageSizeMb=900]");
+            throw new IllegalArgumentException("Usage: <Gemeinde> <Datentyp> <Laufnummer> [--root=/pfad] [--packageSizeMb=900] [--noScanCache] [--localityReadOrder] [--deduplicate]");
         }
 
         String municipality = args[0];
@@ -28,6 +31,9 @@ final class CommandLineArguments {
         int runNumber = Integer.parseInt(args[2]);
         Path root = Paths.get(".");
         long packageSizeMb = 900;
+        boolean scanCache = true;
+        boolean localityReadOrder = false;
+        boolean deduplicate = false;
 
         for (int i = 3; i < args.length; i++) {
             String arg = args[i];
@@ -35,10 +41,17 @@ final class CommandLineArguments {
                 root = Paths.get(arg.substring("--root=".length()));
             } else if (arg.startsWith("--packageSizeMb=")) {
                 packageSizeMb = Long.parseLong(arg.substring("--packageSizeMb=".length()));
+            } else if (arg.equals("--noScanCache")) {
+                scanCache = false;
+            } else if (arg.equals("--localityReadOrder")) {
+                localityReadOrder = true;
+            } else if (arg.equals("--deduplicate")) {
+                deduplicate = true;
             }
         }
 
-        return new CommandLineArguments(municipality, dataType, runNumber, root.toAbsolutePath().normalize(), packageSizeMb * 1024 * 1024);
+        return new CommandLineArguments(municipality, dataType, runNumber, root.toAbsolutePath().normalize(), packageSizeMb * 1024 * 1024,
+                new PackagingOptions(scanCache, localityReadOrder, deduplicate));
     }
 
     public String municipality() {
@@ -60,4 +73,8 @@ final class CommandLineArguments {
     public long packageSizeBytes() {
         return packageSizeBytes;
     }
+
+    public PackagingOptions options() {
+        return options;
+    }
 }
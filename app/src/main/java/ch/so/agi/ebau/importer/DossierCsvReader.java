@@ -0,0 +1,289 @@
+package ch.so.agi.ebau.importer;
+
+import ch.so.agi.ebau.importer.DossierWorkbook.DossierEntry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads dossier metadata from a CSV or TSV export instead of {@code dossiers.xlsx}.
+ * <p>
+ * The file is streamed through a fixed-size character buffer; field contents are collected in one reused
+ * {@link StringBuilder}, so only the field values themselves are allocated. Files starting with a UTF-8 byte order mark
+ * are always decoded as UTF-8. Otherwise the file is decoded as UTF-8 and, if that fails, read again from the start as
+ * Windows-1252 (Excel exports). The delimiter is detected in the first buffer, which is expected to hold the header
+ * line. Values are normalized like the xlsx path: fields that consist of exactly one valid date (ISO or short Swiss
+ * form) become {@code dd.MM.yyyy} and coordinate columns are formatted with two decimals.
+ */
+final class DossierCsvReader {
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+    private static final DateTimeFormatter SWISS_DATE = DateTimeFormatter.ofPattern("d.M.uuuu").withResolverStyle(ResolverStyle.STRICT);
+    private static final DateTimeFormatter OUTPUT_DATE = DateTimeFormatter.ofPattern("dd.MM.uuuu");
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder();
+    private char delimiter;
+    private int position;
+    private int limit;
+
+    private DossierCsvReader(Reader in) {
+        this.in = in;
+    }
+
+    static boolean supports(Path path) {
+        String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return fileName.endsWith(".csv") || fileName.endsWith(".tsv");
+    }
+
+    static DossierWorkbook read(Path path) throws IOException {
+        if (hasUtf8Bom(path)) {
+            // the byte order mark declares UTF-8, so invalid bytes are replaced instead of guessing another charset
+            return read(path, StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        }
+        try {
+            return read(path, StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT));
+        } catch (CharacterCodingException ex) {
+            return read(path, WINDOWS_1252.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        }
+    }
+
+    private static boolean hasUtf8Bom(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] start = in.readNBytes(3);
+            return start.length == 3 && start[0] == (byte) 0xEF && start[1] == (byte) 0xBB && start[2] == (byte) 0xBF;
+        }
+    }
+
+    private static DossierWorkbook read(Path path, CharsetDecoder decoder) throws IOException {
+        String fileName = path.getFileName().toString();
+        try (Reader in = new InputStreamReader(Files.newInputStream(path), decoder)) {
+            DossierCsvReader reader = new DossierCsvReader(in);
+            if (reader.fill() && reader.buffer[reader.position] == '\uFEFF') {
+                reader.position++;
+            }
+            reader.delimiter = fileName.toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : reader.detectDelimiter();
+
+            List<String> headers = new ArrayList<>();
+            reader.readRecord(headers);
+            headers.replaceAll(String::trim);
+            int idIndex = headers.indexOf("ID");
+            if (idIndex < 0) {
+                throw new IllegalArgumentException(fileName + " must contain an 'ID' column");
+            }
+
+            DecimalFormat coordinateFormat = DossierWorkbook.coordinateFormat();
+            List<DossierEntry> entries = new ArrayList<>();
+            List<String> record = new ArrayList<>(headers.size());
+            int rowIndex = 0;
+            while (reader.fill()) {
+                record.clear();
+                reader.readRecord(record);
+                rowIndex++;
+                if (record.size() == 1 && record.get(0).isEmpty()) {
+                    continue;
+                }
+                List<String> values = new ArrayList<>(headers.size());
+                for (int col = 0; col < headers.size(); col++) {
+                    String value = col < record.size() ? record.get(col) : "";
+                    values.add(col == idIndex ? value : normalize(value, headers.get(col), coordinateFormat));
+                }
+                String id = values.get(idIndex).trim();
+                if (!id.isEmpty()) {
+                    entries.add(new DossierEntry(id, values, rowIndex));
+                }
+            }
+            String sheetName = fileName.substring(0, fileName.lastIndexOf('.'));
+            return new DossierWorkbook(sheetName, headers, entries, idIndex);
+        }
+    }
+
+    /** Makes sure the buffer holds at least one unread character; returns {@code false} at the end of the input. */
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    private int peek() throws IOException {
+        return fill() ? buffer[position] : -1;
+    }
+
+    /** Picks the most frequent of {@code ;}, {@code ,} and tab in the header line. */
+    private char detectDelimiter() {
+        int semicolons = 0;
+        int commas = 0;
+        int tabs = 0;
+        boolean quoted = false;
+        for (int i = position; i < limit; i++) {
+            char c = buffer[i];
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted) {
+                if (c == '\n' || c == '\r') {
+                    break;
+                } else if (c == ';') {
+                    semicolons++;
+                } else if (c == ',') {
+                    commas++;
+                } else if (c == '\t') {
+                    tabs++;
+                }
+            }
+        }
+        if (tabs > semicolons && tabs > commas) {
+            return '\t';
+        }
+        return semicolons >= commas && semicolons > 0 ? ';' : ',';
+    }
+
+    /** Reads one record (RFC 4180 quoting, quoted fields may span lines) and consumes its line end. */
+    private void readRecord(List<String> fields) throws IOException {
+        while (true) {
+            field.setLength(0);
+            if (peek() == '"') {
+                position++;
+                readQuoted();
+            }
+            // for quoted fields, characters between the closing quote and the next delimiter are kept, as Excel does
+            readUnquoted();
+            fields.add(field.toString());
+            int c = peek();
+            if (c == delimiter) {
+                position++;
+                continue;
+            }
+            if (c == '\r') {
+                position++;
+                c = peek();
+            }
+            if (c == '\n') {
+                position++;
+            }
+            return;
+        }
+    }
+
+    private void readUnquoted() throws IOException {
+        while (fill()) {
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == delimiter || c == '\n' || c == '\r') {
+                    break;
+                }
+                position++;
+            }
+            field.append(buffer, start, position - start);
+            if (position < limit) {
+                return;
+            }
+        }
+    }
+
+    /** Reads a quoted field after its opening quote up to and including the closing quote. */
+    private void readQuoted() throws IOException {
+        while (fill()) {
+            int start = position;
+            while (position < limit && buffer[position] != '"') {
+                position++;
+            }
+            field.append(buffer, start, position - start);
+            if (position < limit) {
+                position++;
+                if (peek() != '"') {
+                    return;
+                }
+                field.append('"');
+                position++;
+            }
+        }
+    }
+
+    private static String normalize(String value, String header, DecimalFormat coordinateFormat) {
+        if (value.isEmpty()) {
+            return value;
+        }
+        if (DossierWorkbook.COORDINATE_HEADERS.contains(header)) {
+            return formatCoordinate(value, coordinateFormat);
+        }
+        return formatDate(value);
+    }
+
+    private static String formatCoordinate(String value, DecimalFormat coordinateFormat) {
+        String number = value.trim().replace("'", "").replace("’", "").replace(" ", "");
+        if (number.indexOf('.') < 0) {
+            number = number.replace(',', '.');
+        }
+        try {
+            return coordinateFormat.format(Double.parseDouble(number));
+        } catch (NumberFormatException ex) {
+            return value;
+        }
+    }
+
+    /**
+     * Converts values that are exactly a date ({@code yyyy-MM-dd}, {@code d.M.yyyy}) or an ISO date-time to
+     * {@code dd.MM.yyyy}. Invalid dates and any other text, including text that merely starts with a date, are returned
+     * unchanged.
+     */
+    private static String formatDate(String value) {
+        LocalDate date = parseDate(value);
+        return date == null ? value : OUTPUT_DATE.format(date);
+    }
+
+    private static LocalDate parseDate(String value) {
+        int length = value.length();
+        if (length < 8 || value.charAt(0) < '0' || value.charAt(0) > '9') {
+            return null;
+        }
+        try {
+            if (length > 4 && value.charAt(4) == '-') {
+                if (length == 10) {
+                    return LocalDate.parse(value);
+                }
+                if (value.charAt(10) == 'T' || value.charAt(10) == ' ') {
+                    return LocalDateTime.parse(value.substring(0, 10) + "T" + value.substring(11)).toLocalDate();
+                }
+                return null;
+            }
+            if (length <= 10 && value.indexOf('.') > 0) {
+                return LocalDate.parse(value, SWISS_DATE);
+            }
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+        return null;
+    }
+}
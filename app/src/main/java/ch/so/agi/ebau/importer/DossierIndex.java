@@ -0,0 +1,286 @@
+package ch.so.agi.ebau.importer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Index of the entries of a package zip, grouped by dossier ID (the first path segment of the entry name). Files on
+ * the top level of the package, such as {@code dossiers.xlsx}, are listed under the empty ID.
+ * <p>
+ * The index is written next to the zip as {@code <Paket>.idx} and allows extracting a single dossier with positional
+ * reads, without inflating the rest of the package.
+ */
+public final class DossierIndex {
+    private static final int MAGIC = 0x45444931; // "EDI1"
+    private static final int VERSION = 1;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_LENGTH = 30;
+    /** Smallest serialized dossier: empty ID (2) and entry count (4). */
+    private static final int MIN_DOSSIER_BYTES = 6;
+    /** Smallest serialized entry: empty name (2), offset and sizes (24), CRC (4), method (2). */
+    private static final int MIN_ENTRY_BYTES = 32;
+
+    private final long zipSize;
+    private final Map<String, List<Entry>> entriesByDossier;
+
+    private DossierIndex(long zipSize, Map<String, List<Entry>> entriesByDossier) {
+        this.zipSize = zipSize;
+        this.entriesByDossier = entriesByDossier;
+    }
+
+    public static Path indexPath(Path zipPath) {
+        String fileName = zipPath.getFileName().toString();
+        String baseName = fileName.endsWith(".zip") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        return zipPath.resolveSibling(baseName + ".idx");
+    }
+
+    static DossierIndex of(long zipSize, List<Entry> entries) {
+        Map<String, List<Entry>> entriesByDossier = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            entriesByDossier.computeIfAbsent(dossierId(entry.name()), id -> new ArrayList<>()).add(entry);
+        }
+        return new DossierIndex(zipSize, entriesByDossier);
+    }
+
+    public static DossierIndex read(Path indexPath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unbekanntes Indexformat: " + indexPath);
+            }
+            long fileSize = Files.size(indexPath);
+            long zipSize = in.readLong();
+            int dossierCount = readCount(in, fileSize / MIN_DOSSIER_BYTES, indexPath);
+            Map<String, List<Entry>> entriesByDossier = new LinkedHashMap<>();
+            for (int i = 0; i < dossierCount; i++) {
+                String id = in.readUTF();
+                int entryCount = readCount(in, fileSize / MIN_ENTRY_BYTES, indexPath);
+                List<Entry> entries = new ArrayList<>(entryCount);
+                for (int j = 0; j < entryCount; j++) {
+                    entries.add(new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readInt() & 0xFFFFFFFFL,
+                            in.readUnsignedShort()));
+                }
+                entriesByDossier.put(id, entries);
+            }
+            return new DossierIndex(zipSize, entriesByDossier);
+        }
+    }
+
+    /** Reads a count and checks it against the file size, so that a corrupted index cannot cause a huge allocation. */
+    private static int readCount(DataInputStream in, long max, Path indexPath) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > max) {
+            throw new IOException("Index ist beschädigt: " + count + " Einträge angekündigt, höchstens " + max + " möglich ("
+                    + indexPath + ")");
+        }
+        return count;
+    }
+
+    public void write(Path indexPath) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(zipSize);
+            out.writeInt(entriesByDossier.size());
+            for (Map.Entry<String, List<Entry>> dossier : entriesByDossier.entrySet()) {
+                out.writeUTF(dossier.getKey());
+                out.writeInt(dossier.getValue().size());
+                for (Entry entry : dossier.getValue()) {
+                    out.writeUTF(entry.name());
+                    out.writeLong(entry.localHeaderOffset());
+                    out.writeLong(entry.compressedSize());
+                    out.writeLong(entry.size());
+                    out.writeInt((int) entry.crc());
+                    out.writeShort(entry.method());
+                }
+            }
+        }
+    }
+
+    public List<String> dossierIds() {
+        return List.copyOf(entriesByDossier.keySet());
+    }
+
+    public List<Entry> entries(String dossierId) {
+        return entriesByDossier.getOrDefault(dossierId, List.of());
+    }
+
+    /**
+     * Extracts all entries of {@code dossierId} from {@code zipPath} into {@code targetFolder}, keeping the entry paths.
+     *
+     * @return number of extracted files
+     */
+    public int extract(Path zipPath, String dossierId, Path targetFolder) throws IOException {
+        List<Entry> entries = entries(dossierId);
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Dossier " + dossierId + " ist nicht im Index enthalten");
+        }
+        Path normalizedTarget = targetFolder.toAbsolutePath().normalize();
+        try (FileChannel channel = FileChannel.open(zipPath, StandardOpenOption.READ)) {
+            if (channel.size() != zipSize) {
+                throw new IOException("Index passt nicht zu " + zipPath + " (Größe " + channel.size() + " statt " + zipSize + ")");
+            }
+            for (Entry entry : entries) {
+                Path target = normalizedTarget.resolve(entry.name()).normalize();
+                if (!target.startsWith(normalizedTarget)) {
+                    throw new ZipException("Ungültiger Eintrag: " + entry.name());
+                }
+                Files.createDirectories(target.getParent());
+                extractEntry(channel, entry, target);
+            }
+        }
+        return entries.size();
+    }
+
+    private static void extractEntry(FileChannel channel, Entry entry, Path target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, entry.localHeaderOffset());
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Kein lokaler Header bei Offset " + entry.localHeaderOffset() + " für " + entry.name());
+        }
+        int nameLength = Short.toUnsignedInt(header.getShort(26));
+        int extraLength = Short.toUnsignedInt(header.getShort(28));
+        long dataOffset = entry.localHeaderOffset() + LOCAL_HEADER_LENGTH + nameLength + extraLength;
+
+        Inflater inflater = entry.method() == ZipEntry.DEFLATED ? new Inflater(true) : null;
+        long written = 0L;
+        CRC32 crc = new CRC32();
+        try {
+            InputStream content = switch (entry.method()) {
+                case ZipEntry.STORED -> new RangeInputStream(channel, dataOffset, entry.compressedSize(), false);
+                case ZipEntry.DEFLATED -> new InflaterInputStream(
+                        new RangeInputStream(channel, dataOffset, entry.compressedSize(), true), inflater);
+                default -> throw new ZipException("Nicht unterstützte Kompression " + entry.method() + " für " + entry.name());
+            };
+            try (content; OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = content.read(buffer)) > 0) {
+                    crc.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    written += read;
+                }
+            }
+        } finally {
+            // InflaterInputStream does not end an Inflater supplied by the caller
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+        if (written != entry.size() || crc.getValue() != entry.crc()) {
+            throw new ZipException("Prüfsumme stimmt nicht für " + entry.name());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, current);
+            if (read < 0) {
+                throw new ZipException("Unerwartetes Dateiende bei Offset " + current);
+            }
+            current += read;
+        }
+    }
+
+    private static String dossierId(String entryName) {
+        int separator = entryName.indexOf('/');
+        return separator < 0 ? "" : entryName.substring(0, separator);
+    }
+
+    /** Location and checksums of a single zip entry. */
+    public record Entry(String name, long localHeaderOffset, long compressedSize, long size, long crc, int method) {
+    }
+
+    /** Counts the bytes written to a zip so the local header offset of each entry is known. */
+    static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long count() {
+            return count;
+        }
+    }
+
+    /**
+     * Reads a byte range of a channel with positional reads. For deflated entries a single trailing zero byte is returned
+     * after the range, as required by {@link Inflater} in {@code nowrap} mode.
+     */
+    private static final class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+        private boolean padded;
+
+        RangeInputStream(FileChannel channel, long position, long length, boolean padForInflater) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = length;
+            this.padded = !padForInflater;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining == 0) {
+                if (padded) {
+                    return -1;
+                }
+                padded = true;
+                b[off] = 0;
+                return 1;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, remaining));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new ZipException("Unerwartetes Dateiende bei Offset " + position);
+            }
+            position += read;
+            remaining -= read;
+            return read;
+        }
+    }
+}
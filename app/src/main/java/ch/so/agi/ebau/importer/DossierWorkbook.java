@@ -26,29 +26,33 @@ import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 public final class DossierWorkbook {
-    private static final Set<String> COORDINATE_HEADERS = Set.of("COORDINATE-N", "COORDINATE-E");
+    static final Set<String> COORDINATE_HEADERS = Set.of("COORDINATE-N", "COORDINATE-E");
+    static final Locale SWISS_LOCALE = Locale.forLanguageTag("de-CH");
     private final String sheetName;
     private final List<String> headers;
     private final List<DossierEntry> entries;
     private final int idColumnIndex;
 
-    private DossierWorkbook(String sheetName, List<String> headers, List<DossierEntry> entries, int idColumnIndex) {
+    DossierWorkbook(String sheetName, List<String> headers, List<DossierEntry> entries, int idColumnIndex) {
         this.sheetName = sheetName;
         this.headers = headers;
         this.entries = entries;
         this.idColumnIndex = idColumnIndex;
     }
 
+    /**
+     * Reads {@code dossiers.xlsx} or, for files ending in {@code .csv}/{@code .tsv}, a delimited export with the same
+     * columns.
+     */
     public static DossierWorkbook read(Path workbookPath) throws IOException {
+        if (DossierCsvReader.supports(workbookPath)) {
+            return DossierCsvReader.read(workbookPath);
+        }
         try (Workbook workbook = WorkbookFactory.create(Files.newInputStream(workbookPath))) {
             Sheet sheet = workbook.getSheetAt(0);
-            Locale swissLocale = Locale.forLanguageTag("de-CH");
-            DataFormatter formatter = new DataFormatter(swissLocale);
-            DateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy", swissLocale);
-            DecimalFormatSymbols coordinateSymbols = new DecimalFormatSymbols(swissLocale);
-            coordinateSymbols.setDecimalSeparator('.');
-            DecimalFormat coordinateFormat = new DecimalFormat("0.00", coordinateSymbols);
-            coordinateFormat.setGroupingUsed(false);
+            DataFormatter formatter = new DataFormatter(SWISS_LOCALE);
+            DateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy", SWISS_LOCALE);
+            DecimalFormat coordinateFormat = coordinateFormat();
             Row headerRow = sheet.getRow(sheet.getFirstRowNum());
             List<String> headers = new ArrayList<>();
             for (Cell cell : headerRow) {
@@ -81,6 +85,14 @@ public final class DossierWorkbook {
         }
     }
 
+    static DecimalFormat coordinateFormat() {
+        DecimalFormatSymbols coordinateSymbols = new DecimalFormatSymbols(SWISS_LOCALE);
+        coordinateSymbols.setDecimalSeparator('.');
+        DecimalFormat coordinateFormat = new DecimalFormat("0.00", coordinateSymbols);
+        coordinateFormat.setGroupingUsed(false);
+        return coordinateFormat;
+    }
+
     private static String formatCellValue(Cell cell, String header, DataFormatter formatter, DateFormat dateFormat,
             DecimalFormat coordinateFormat) {
         if (cell == null) {
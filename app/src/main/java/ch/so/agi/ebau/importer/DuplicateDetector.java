@@ -0,0 +1,162 @@
+package ch.so.agi.ebau.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds files with identical content in the dossier folders of a run and replaces later copies in the transparency
+ * folders with hard links to the first copy.
+ * <p>
+ * Only files sharing their size with at least one other file are hashed (SHA-256). Hashing is I/O bound and runs
+ * under the caller's I/O permit, so it uses only {@value #HASH_THREADS} threads.
+ */
+final class DuplicateDetector {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DuplicateDetector.class);
+    private static final int HASH_THREADS = 2;
+
+    private final Map<Path, DuplicateGroup> groupsByFile;
+    private final List<DuplicateGroup> groups;
+    private final Map<DuplicateGroup, Path> firstCopies = new HashMap<>();
+    private final Map<DuplicateGroup, Integer> linkCounts = new HashMap<>();
+
+    private DuplicateDetector(List<DuplicateGroup> groups) {
+        this.groups = groups;
+        this.groupsByFile = new HashMap<>();
+        for (DuplicateGroup group : groups) {
+            for (Path file : group.files()) {
+                groupsByFile.put(file, group);
+            }
+        }
+    }
+
+    static DuplicateDetector detect(List<Path> folders) throws IOException {
+        Map<Long, List<Path>> filesBySize = new LinkedHashMap<>();
+        for (Path folder : folders) {
+            try (var stream = Files.walk(folder)) {
+                for (Path file : stream.filter(Files::isRegularFile).sorted().toList()) {
+                    long size = Files.size(file);
+                    if (size > 0) {
+                        filesBySize.computeIfAbsent(size, key -> new ArrayList<>()).add(file);
+                    }
+                }
+            }
+        }
+
+        List<Path> candidates = new ArrayList<>();
+        for (List<Path> sameSize : filesBySize.values()) {
+            if (sameSize.size() > 1) {
+                candidates.addAll(sameSize);
+            }
+        }
+        Map<Path, String> hashes = hashAll(candidates);
+
+        Map<String, List<Path>> filesByContent = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<Path>> sameSize : filesBySize.entrySet()) {
+            if (sameSize.getValue().size() < 2) {
+                continue;
+            }
+            for (Path file : sameSize.getValue()) {
+                filesByContent.computeIfAbsent(sameSize.getKey() + ":" + hashes.get(file), key -> new ArrayList<>()).add(file);
+            }
+        }
+        List<DuplicateGroup> groups = new ArrayList<>();
+        for (List<Path> files : filesByContent.values()) {
+            if (files.size() > 1) {
+                groups.add(new DuplicateGroup(hashes.get(files.get(0)), Files.size(files.get(0)), List.copyOf(files)));
+            }
+        }
+        LOGGER.info("{} Dateien mit gleicher Größe geprüft, {} Gruppen von Duplikaten gefunden", candidates.size(), groups.size());
+        return new DuplicateDetector(groups);
+    }
+
+    /**
+     * Copies {@code source} to {@code target}, or creates a hard link to an earlier copy with the same content.
+     */
+    void copy(Path source, Path target) throws IOException {
+        DuplicateGroup group = groupsByFile.get(source);
+        if (group == null) {
+            Files.copy(source, target);
+            return;
+        }
+        Path firstCopy = firstCopies.get(group);
+        if (firstCopy != null) {
+            try {
+                Files.createLink(target, firstCopy);
+                linkCounts.merge(group, 1, Integer::sum);
+                return;
+            } catch (UnsupportedOperationException | IOException ex) {
+                LOGGER.debug("Hardlink {} -> {} nicht möglich, kopiere", target, firstCopy, ex);
+            }
+        }
+        Files.copy(source, target);
+        if (firstCopy == null) {
+            firstCopies.put(group, target);
+        }
+    }
+
+    List<DuplicateGroup> groups() {
+        return groups;
+    }
+
+    int linkCount(DuplicateGroup group) {
+        return linkCounts.getOrDefault(group, 0);
+    }
+
+    private static Map<Path, String> hashAll(List<Path> files) throws IOException {
+        Map<Path, String> hashes = new HashMap<>();
+        if (files.isEmpty()) {
+            return hashes;
+        }
+        int threads = Math.min(files.size(), HASH_THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Map<Path, Future<String>> futures = new LinkedHashMap<>();
+            for (Path file : files) {
+                futures.put(file, executor.submit(() -> hash(file)));
+            }
+            for (Map.Entry<Path, Future<String>> future : futures.entrySet()) {
+                hashes.put(future.getKey(), future.getValue().get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Unterbrochen beim Berechnen der Prüfsummen", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Prüfsumme kann nicht berechnet werden", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return hashes;
+    }
+
+    private static String hash(Path file) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** Files with identical content, in the order they are packaged. */
+    record DuplicateGroup(String hash, long size, List<Path> files) {
+    }
+}
@@ -0,0 +1,49 @@
+package ch.so.agi.ebau.importer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+final class ExtractArguments {
+    static final String COMMAND = "extract";
+
+    private final Path zipPath;
+    private final String dossierId;
+    private final Path targetPath;
+
+    private ExtractArguments(Path zipPath, String dossierId, Path targetPath) {
+        this.zipPath = zipPath;
+        this.dossierId = dossierId;
+        this.targetPath = targetPath;
+    }
+
+    public static ExtractArguments parse(String[] args) {
+        if (args.length < 3 || !args[0].equals(COMMAND)) {
+            throw new IllegalArgumentException("Usage: extract <Paket.zip> <DossierID> [--target=/pfad]");
+        }
+
+        Path zipPath = Paths.get(args[1]);
+        String dossierId = args[2];
+        Path target = Paths.get(".");
+
+        for (int i = 3; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--target=")) {
+                target = Paths.get(arg.substring("--target=".length()));
+            }
+        }
+
+        return new ExtractArguments(zipPath.toAbsolutePath().normalize(), dossierId, target.toAbsolutePath().normalize());
+    }
+
+    public Path zipPath() {
+        return zipPath;
+    }
+
+    public String dossierId() {
+        return dossierId;
+    }
+
+    public Path targetPath() {
+        return targetPath;
+    }
+}
@@ -1,7 +1,10 @@
 package ch.so.agi.ebau.importer;
 
 import ch.so.agi.ebau.importer.DossierWorkbook.DossierEntry;
+import ch.so.agi.ebau.importer.ScanCache.DirectoryNode;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -15,7 +18,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.Semaphore;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import org.slf4j.Logger;
@@ -25,44 +28,52 @@ public class ImportPackager {
     private static final Logger LOGGER = LoggerFactory.getLogger(ImportPackager.class);
     private static final Set<String> KNOWN_STATUSES = Set.of("SUBMITTED", "APPROVED", "REJECTED", "WRITTEN OFF", "DONE");
     private static final String UNKNOWN_STATUS = "UNKNOWN";
+    private static final List<String> DOSSIER_FILE_NAMES = List.of("dossiers.xlsx", "dossiers.csv", "dossiers.tsv");
 
     private final Path rootPath;
     private final long packageSizeBytes;
+    private final PackagingOptions options;
+    private final Semaphore ioPermits;
 
     public ImportPackager(Path rootPath, long packageSizeBytes) {
+        this(rootPath, packageSizeBytes, PackagingOptions.defaults());
+    }
+
+    public ImportPackager(Path rootPath, long packageSizeBytes, PackagingOptions options) {
+        this(rootPath, packageSizeBytes, options, null);
+    }
+
+    /**
+     * @param ioPermits shared limit for concurrent I/O-heavy work (duplicate detection, copy and zip), or {@code null}
+     *                  for no limit
+     */
+    ImportPackager(Path rootPath, long packageSizeBytes, PackagingOptions options, Semaphore ioPermits) {
         this.rootPath = rootPath;
         this.packageSizeBytes = packageSizeBytes;
+        this.options = options;
+        this.ioPermits = ioPermits;
     }
 
     public void execute(String municipality, DataType dataType, int runNumber) throws IOException {
+        execute(municipality, dataType, runNumber, PackagingListener.NONE);
+    }
+
+    public void execute(String municipality, DataType dataType, int runNumber, PackagingListener listener) throws IOException {
         Path municipalityFolder = rootPath.resolve(municipality);
         Path dataFolder = municipalityFolder.resolve(dataType.dataFolderName());
         if (!Files.isDirectory(dataFolder)) {
             throw new IllegalArgumentException("Data folder not found: " + dataFolder);
         }
-        Path dossierPath = dataFolder.resolve("dossiers.xlsx");
-        if (!Files.exists(dossierPath)) {
-            throw new IllegalArgumentException("Missing dossiers.xlsx at " + dossierPath);
-        }
+        Path dossierPath = findDossierFile(dataFolder);
 
         LOGGER.info("Starte Verpackung für {} ({}), Lauf {}", municipality, dataType, runNumber);
         DossierWorkbook workbook = DossierWorkbook.read(dossierPath);
         Map<String, DossierEntry> entriesById = workbook.entriesById();
-        List<Path> availableFolders = Files.list(dataFolder)
-                .filter(Files::isDirectory)
-                .filter(path -> !path.getFileName().toString().equalsIgnoreCase("Import"))
-                .sorted()
-                .collect(Collectors.toList());
+        Map<Path, Long> folderSizes = scanFolderSizes(municipalityFolder, dataType, dataFolder);
+        List<Path> availableFolders = new ArrayList<>(folderSizes.keySet());
 
         validateFolderCoverage(availableFolders, entriesById.keySet());
 
-        Map<Path, Long> folderSizes = new LinkedHashMap<>();
-        for (Path folder : availableFolders) {
-            long size = calculateSize(folder);
-            folderSizes.put(folder, size);
-            LOGGER.info("Ordner {} hat Größe {} Bytes", folder.getFileName(), size);
-        }
-
         Set<String> usedIds = new HashSet<>();
         List<PackagePlan> plans = planPackages(folderSizes, entriesById, usedIds);
         List<DossierEntry> leftoverEntries = workbook.entries().stream()
@@ -72,17 +83,34 @@ public class ImportPackager {
         Path runFolder = municipalityFolder.resolve("Import").resolve(dataType.runFolderName(runNumber));
         Files.createDirectories(runFolder);
         PackagingStatistics statistics = new PackagingStatistics(workbook.entries().size());
+        DuplicateDetector duplicates = null;
+        if (options.deduplicate()) {
+            List<Path> folders = plans.stream().flatMap(plan -> plan.folders().stream()).toList();
+            duplicates = withIoPermit("Duplikaterkennung", () -> DuplicateDetector.detect(folders));
+        }
+        listener.packagesPlanned(plans.size() + (leftoverEntries.isEmpty() ? 0 : 1));
 
         int packageIndex = 1;
         for (PackagePlan plan : plans) {
             String packageName = municipality + "_" + packageIndex++;
-            createPackage(runFolder, packageName, plan, workbook, statistics);
+            createPackageWithPermit(runFolder, packageName, plan, folderSizes, duplicates, workbook, statistics);
+            listener.packageCreated(packageName);
         }
 
         if (!leftoverEntries.isEmpty()) {
             String packageName = municipality + "_" + packageIndex;
             PackagePlan leftoverPlan = new PackagePlan(Collections.emptyList(), leftoverEntries);
-            createPackage(runFolder, packageName, leftoverPlan, workbook, statistics);
+            createPackageWithPermit(runFolder, packageName, leftoverPlan, folderSizes, duplicates, workbook, statistics);
+            listener.packageCreated(packageName);
+        }
+
+        if (duplicates != null) {
+            for (DuplicateDetector.DuplicateGroup group : duplicates.groups()) {
+                List<String> files = group.files().stream()
+                        .map(file -> dataFolder.relativize(file).toString().replace('\\', '/'))
+                        .toList();
+                statistics.addDuplicateGroup(group.hash(), group.size(), files, duplicates.linkCount(group));
+            }
         }
 
         Path statsPath = runFolder.resolve("statistics.xlsx");
@@ -90,6 +118,48 @@ public class ImportPackager {
         LOGGER.info("Statistik geschrieben nach {}", statsPath);
     }
 
+    private Path findDossierFile(Path dataFolder) {
+        for (String fileName : DOSSIER_FILE_NAMES) {
+            Path candidate = dataFolder.resolve(fileName);
+            if (Files.exists(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Missing dossiers.xlsx (or dossiers.csv/dossiers.tsv) at " + dataFolder);
+    }
+
+    private Map<Path, Long> scanFolderSizes(Path municipalityFolder, DataType dataType, Path dataFolder) throws IOException {
+        Map<Path, Long> folderSizes = new LinkedHashMap<>();
+        if (!options.scanCache()) {
+            try (var stream = Files.list(dataFolder)) {
+                List<Path> folders = stream.filter(Files::isDirectory)
+                        .filter(path -> !path.getFileName().toString().equalsIgnoreCase("Import"))
+                        .sorted()
+                        .toList();
+                for (Path folder : folders) {
+                    long size = calculateSize(folder);
+                    folderSizes.put(folder, size);
+                    LOGGER.info("Ordner {} hat Größe {} Bytes", folder.getFileName(), size);
+                }
+            }
+            return folderSizes;
+        }
+
+        ScanCache scanCache = ScanCache.load(ScanCache.cacheFile(municipalityFolder, dataType));
+        DirectoryNode root = scanCache.scan(dataFolder);
+        LOGGER.info("Scan-Cache: {} Verzeichnisse wiederverwendet, {} neu gelesen", scanCache.hits(), scanCache.misses());
+        for (DirectoryNode child : root.children()) {
+            if (child.name().equalsIgnoreCase("Import")) {
+                continue;
+            }
+            long size = child.totalBytes();
+            folderSizes.put(dataFolder.resolve(child.name()), size);
+            LOGGER.info("Ordner {} hat Größe {} Bytes", child.name(), size);
+        }
+        scanCache.save(root);
+        return folderSizes;
+    }
+
     private List<PackagePlan> planPackages(Map<Path, Long> folderSizes, Map<String, DossierEntry> entriesById, Set<String> usedIds) {
         List<Path> folders = new ArrayList<>(folderSizes.keySet());
         folders.sort(Comparator.comparing(path -> path.getFileName().toString()));
@@ -122,8 +192,33 @@ public class ImportPackager {
         return plans;
     }
 
-    private void createPackage(Path runFolder, String packageName, PackagePlan plan, DossierWorkbook workbook, PackagingStatistics statistics)
-            throws IOException {
+    private void createPackageWithPermit(Path runFolder, String packageName, PackagePlan plan, Map<Path, Long> folderSizes,
+            DuplicateDetector duplicates, DossierWorkbook workbook, PackagingStatistics statistics) throws IOException {
+        withIoPermit(packageName, () -> {
+            createPackage(runFolder, packageName, plan, folderSizes, duplicates, workbook, statistics);
+            return null;
+        });
+    }
+
+    private <T> T withIoPermit(String purpose, IoAction<T> action) throws IOException {
+        if (ioPermits == null) {
+            return action.run();
+        }
+        try {
+            ioPermits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Unterbrochen beim Warten auf I/O-Freigabe für " + purpose, ex);
+        }
+        try {
+            return action.run();
+        } finally {
+            ioPermits.release();
+        }
+    }
+
+    private void createPackage(Path runFolder, String packageName, PackagePlan plan, Map<Path, Long> folderSizes,
+            DuplicateDetector duplicates, DossierWorkbook workbook, PackagingStatistics statistics) throws IOException {
         LOGGER.info("Erzeuge Paket {} mit {} Ordnern", packageName, plan.folders().size());
         Path packageFolder = runFolder.resolve(packageName);
         Files.createDirectories(packageFolder);
@@ -134,8 +229,13 @@ public class ImportPackager {
         long uncompressedSum = 0L;
         for (Path folder : plan.folders()) {
             Path target = packageFolder.resolve(folder.getFileName());
-            copyFolder(folder, target);
-            long folderSize = calculateSize(folder);
+            copyFolder(folder, target, duplicates);
+            long folderSize = calculateSize(target);
+            long plannedSize = folderSizes.get(folder);
+            if (folderSize != plannedSize) {
+                LOGGER.warn("Ordner {} hat {} Bytes statt der geplanten {} Bytes{}", folder.getFileName(), folderSize,
+                        plannedSize, options.scanCache() ? "; Scan-Cache veraltet, ggf. mit --noScanCache neu starten" : "");
+            }
             statistics.addAssignment(packageName, folder.getFileName().toString(), folderSize, 0);
         }
 
@@ -149,8 +249,9 @@ public class ImportPackager {
         int documentCount = countDocuments(packageFolder);
 
         Path zipPath = runFolder.resolve(packageName + ".zip");
-        zipDirectory(packageFolder, zipPath);
+        List<DossierIndex.Entry> indexEntries = zipDirectory(packageFolder, zipPath);
         long zipSize = Files.size(zipPath);
+        DossierIndex.of(zipSize, indexEntries).write(DossierIndex.indexPath(zipPath));
         statistics.registerZipSize(packageName, zipSize);
         statistics.registerPackageTotals(packageName, uncompressedSum, zipSize, plan.entries().size(), plan.folders().size(),
                 documentCount, calculateStatusTotals(plan.entries(), workbook));
@@ -211,7 +312,8 @@ public class ImportPackager {
         return totals;
     }
 
-    private void copyFolder(Path source, Path target) throws IOException {
+    private void copyFolder(Path source, Path target, DuplicateDetector duplicates) throws IOException {
+        List<Path> files = new ArrayList<>();
         Files.walkFileTree(source, new SimpleFileVisitor<>() {
             @Override
             public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
@@ -221,32 +323,63 @@ public class ImportPackager {
             }
 
             @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Path relative = source.relativize(file);
-                Files.copy(file, target.resolve(relative));
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                files.add(file);
                 return FileVisitResult.CONTINUE;
             }
         });
+        List<Path> readOrder = options.localityReadOrder() ? ReadScheduler.sortByLocality(files) : files;
+        for (Path file : readOrder) {
+            Path relative = source.relativize(file);
+            if (duplicates == null) {
+                Files.copy(file, target.resolve(relative));
+            } else {
+                duplicates.copy(file, target.resolve(relative));
+            }
+        }
     }
 
-    private void zipDirectory(Path sourceDir, Path zipFile) throws IOException {
-        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(zipFile))) {
-            Files.walk(sourceDir)
-                    .filter(path -> !Files.isDirectory(path))
-                    .forEach(path -> {
-                        String entryName = sourceDir.relativize(path).toString().replace('\\', '/');
-                        ZipEntry entry = new ZipEntry(entryName);
-                        try {
-                            zipOutputStream.putNextEntry(entry);
-                            Files.copy(path, zipOutputStream);
-                            zipOutputStream.closeEntry();
-                        } catch (IOException e) {
-                            throw new IllegalStateException("Fehler beim Zippen von " + path, e);
+    private List<DossierIndex.Entry> zipDirectory(Path sourceDir, Path zipFile) throws IOException {
+        List<Path> files;
+        try (var stream = Files.walk(sourceDir)) {
+            // sorted so that the entry order does not depend on directory listing order or on the copy order
+            files = stream.filter(path -> !Files.isDirectory(path)).sorted().toList();
+        }
+        List<DossierIndex.Entry> indexEntries = new ArrayList<>(files.size());
+        DossierIndex.CountingOutputStream countingStream = new DossierIndex.CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(zipFile)));
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(countingStream);
+                ReadScheduler scheduler = options.localityReadOrder()
+                        ? new ReadScheduler(files, ReadScheduler.DEFAULT_BUDGET_BYTES)
+                        : null) {
+            for (Path path : files) {
+                String entryName = sourceDir.relativize(path).toString().replace('\\', '/');
+                ZipEntry entry = new ZipEntry(entryName);
+                try {
+                    long localHeaderOffset = countingStream.count();
+                    zipOutputStream.putNextEntry(entry);
+                    if (scheduler == null) {
+                        Files.copy(path, zipOutputStream);
+                    } else {
+                        try (InputStream in = scheduler.open(path)) {
+                            in.transferTo(zipOutputStream);
                         }
-                    });
+                    }
+                    zipOutputStream.closeEntry();
+                    indexEntries.add(new DossierIndex.Entry(entryName, localHeaderOffset, entry.getCompressedSize(),
+                            entry.getSize(), entry.getCrc(), entry.getMethod()));
+                } catch (IOException e) {
+                    throw new IOException("Fehler beim Zippen von " + path, e);
+                }
+            }
         }
+        return indexEntries;
     }
 
     private record PackagePlan(List<Path> folders, List<DossierEntry> entries) {
     }
+
+    private interface IoAction<T> {
+        T run() throws IOException;
+    }
 }
@@ -0,0 +1,143 @@
+package ch.so.agi.ebau.importer;
+
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A packaging run submitted to {@link PackagingServer}. Jobs with a higher priority are started first, jobs with the
+ * same priority in submission order.
+ */
+final class PackagingJob implements Runnable, Comparable<PackagingJob>, PackagingListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PackagingJob.class);
+
+    enum State {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    /** The work done by a job; reports progress to the given listener. */
+    @FunctionalInterface
+    interface Task {
+        void run(PackagingListener listener) throws Exception;
+    }
+
+    private final long id;
+    private final String municipality;
+    private final DataType dataType;
+    private final int runNumber;
+    private final int priority;
+    private final Task task;
+    private final Instant submittedAt = Instant.now();
+    private volatile State state = State.QUEUED;
+    private volatile int totalPackages;
+    private volatile int completedPackages;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    PackagingJob(long id, String municipality, DataType dataType, int runNumber, int priority, Task task) {
+        this.id = id;
+        this.municipality = municipality;
+        this.dataType = dataType;
+        this.runNumber = runNumber;
+        this.priority = priority;
+        this.task = task;
+    }
+
+    @Override
+    public void run() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+        LOGGER.info("Job {} gestartet: {} ({}), Lauf {}", id, municipality, dataType, runNumber);
+        try {
+            task.run(this);
+            state = State.DONE;
+            LOGGER.info("Job {} abgeschlossen", id);
+        } catch (Throwable ex) {
+            error = ex.getMessage() == null ? ex.getClass().getName() : ex.getMessage();
+            state = State.FAILED;
+            LOGGER.error("Job {} fehlgeschlagen", id, ex);
+            // the job must not stay RUNNING (and block its run) after an Error, but the Error itself is not swallowed
+            if (ex instanceof Error err) {
+                throw err;
+            }
+        } finally {
+            finishedAt = Instant.now();
+        }
+    }
+
+    @Override
+    public void packagesPlanned(int packageCount) {
+        totalPackages = packageCount;
+    }
+
+    @Override
+    public void packageCreated(String packageName) {
+        completedPackages++;
+    }
+
+    @Override
+    public int compareTo(PackagingJob other) {
+        int byPriority = Integer.compare(other.priority, priority);
+        return byPriority != 0 ? byPriority : Long.compare(id, other.id);
+    }
+
+    boolean isFinished() {
+        return state == State.DONE || state == State.FAILED;
+    }
+
+    boolean isActive() {
+        return state == State.QUEUED || state == State.RUNNING;
+    }
+
+    boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    boolean targetsSameRun(PackagingJob other) {
+        return municipality.equals(other.municipality) && dataType == other.dataType && runNumber == other.runNumber;
+    }
+
+    long id() {
+        return id;
+    }
+
+    String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"id\":").append(id);
+        json.append(",\"municipality\":").append(quote(municipality));
+        json.append(",\"dataType\":").append(quote(dataType.name()));
+        json.append(",\"runNumber\":").append(runNumber);
+        json.append(",\"priority\":").append(priority);
+        json.append(",\"state\":").append(quote(state.name()));
+        json.append(",\"completedPackages\":").append(completedPackages);
+        json.append(",\"totalPackages\":").append(totalPackages);
+        json.append(",\"submittedAt\":").append(quote(submittedAt.toString()));
+        json.append(",\"startedAt\":").append(startedAt == null ? "null" : quote(startedAt.toString()));
+        json.append(",\"finishedAt\":").append(finishedAt == null ? "null" : quote(finishedAt.toString()));
+        json.append(",\"error\":").append(error == null ? "null" : quote(error));
+        return json.append('}').toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,15 @@
+package ch.so.agi.ebau.importer;
+
+/**
+ * Receives progress notifications from {@link ImportPackager#execute(String, DataType, int, PackagingListener)}.
+ */
+public interface PackagingListener {
+    PackagingListener NONE = new PackagingListener() {
+    };
+
+    default void packagesPlanned(int packageCount) {
+    }
+
+    default void packageCreated(String packageName) {
+    }
+}
@@ -0,0 +1,11 @@
+package ch.so.agi.ebau.importer;
+
+/**
+ * Optional behaviour of {@link ImportPackager}. {@link #defaults()} matches the command line defaults.
+ */
+public record PackagingOptions(boolean scanCache, boolean localityReadOrder, boolean deduplicate) {
+
+    public static PackagingOptions defaults() {
+        return new PackagingOptions(true, false, false);
+    }
+}
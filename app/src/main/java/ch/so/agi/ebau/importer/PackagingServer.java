@@ -0,0 +1,256 @@
+package ch.so.agi.ebau.importer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local HTTP service that keeps one JVM running and processes packaging jobs from a prioritised queue.
+ * <ul>
+ * <li>{@code POST /jobs?municipality=..&dataType=..&runNumber=..[&priority=0][&packageSizeMb=900][&noScanCache=true][&localityReadOrder=true][&deduplicate=true]}</li>
+ * <li>{@code GET /jobs} and {@code GET /jobs/<id>}</li>
+ * </ul>
+ * At most {@code maxJobs} jobs run at the same time and at most {@code maxIo} packages are copied and zipped (or
+ * checked for duplicates) concurrently across all jobs. Only the last {@code keepFinishedJobs} finished jobs are kept for status queries.
+ */
+final class PackagingServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PackagingServer.class);
+
+    /** Time running jobs get to finish when the server is stopped, within typical service manager stop timeouts. */
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(60);
+
+    private final Path rootPath;
+    private final HttpServer httpServer;
+    private final ExecutorService requestExecutor;
+    private final ThreadPoolExecutor jobExecutor;
+    private final Semaphore ioPermits;
+    private final int keepFinishedJobs;
+    private final TaskFactory taskFactory;
+    private final Map<Long, PackagingJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong nextJobId = new AtomicLong(1);
+
+    /** Creates the work of a job from the validated request parameters. */
+    @FunctionalInterface
+    interface TaskFactory {
+        PackagingJob.Task create(String municipality, DataType dataType, int runNumber, long packageSizeBytes,
+                PackagingOptions options);
+    }
+
+    PackagingServer(Path rootPath, int port, int maxJobs, int maxIo, int keepFinishedJobs) throws IOException {
+        this(rootPath, port, maxJobs, maxIo, keepFinishedJobs, null);
+    }
+
+    /**
+     * @param taskFactory creates the job work, or {@code null} to run {@link ImportPackager} below {@code rootPath}
+     */
+    PackagingServer(Path rootPath, int port, int maxJobs, int maxIo, int keepFinishedJobs, TaskFactory taskFactory)
+            throws IOException {
+        this.rootPath = rootPath;
+        this.ioPermits = new Semaphore(maxIo, true);
+        this.keepFinishedJobs = keepFinishedJobs;
+        this.taskFactory = taskFactory != null ? taskFactory
+                : (municipality, dataType, runNumber, packageSizeBytes, options) -> listener -> new ImportPackager(rootPath,
+                        packageSizeBytes, options, ioPermits).execute(municipality, dataType, runNumber, listener);
+        this.jobExecutor = new ThreadPoolExecutor(maxJobs, maxJobs, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+        this.requestExecutor = Executors.newSingleThreadExecutor();
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.httpServer.createContext("/jobs", this::handleJobs);
+        this.httpServer.setExecutor(requestExecutor);
+    }
+
+    void start() {
+        httpServer.start();
+        LOGGER.info("Server gestartet auf {} (Root {})", httpServer.getAddress(), rootPath);
+    }
+
+    void stop() {
+        stop(SHUTDOWN_TIMEOUT);
+    }
+
+    /**
+     * Stops accepting requests, drops queued jobs and waits up to {@code timeout} for running jobs before interrupting
+     * them.
+     */
+    void stop(Duration timeout) {
+        httpServer.stop(0);
+        requestExecutor.shutdown();
+        jobExecutor.shutdown();
+        List<Runnable> queued = new ArrayList<>();
+        jobExecutor.getQueue().drainTo(queued);
+        for (Runnable job : queued) {
+            LOGGER.warn("Job {} wird wegen Server-Stopp nicht gestartet", ((PackagingJob) job).id());
+        }
+        try {
+            if (jobExecutor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                LOGGER.info("Server gestoppt");
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        jobs.values().stream()
+                .filter(PackagingJob::isRunning)
+                .forEach(job -> LOGGER.warn("Job {} läuft beim Server-Stopp noch und wird abgebrochen; Dateien im Lauf-Ordner "
+                        + "können unvollständig sein", job.id()));
+        jobExecutor.shutdownNow();
+    }
+
+    int port() {
+        return httpServer.getAddress().getPort();
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/jobs") || path.equals("/jobs/")) {
+                if (method.equals("POST")) {
+                    submit(exchange);
+                } else if (method.equals("GET")) {
+                    List<String> list = new ArrayList<>();
+                    jobs.values().stream().sorted((a, b) -> Long.compare(a.id(), b.id())).forEach(job -> list.add(job.toJson()));
+                    respond(exchange, 200, "[" + String.join(",", list) + "]");
+                } else {
+                    respond(exchange, 405, error("Methode nicht erlaubt"));
+                }
+                return;
+            }
+            if (!method.equals("GET")) {
+                respond(exchange, 405, error("Methode nicht erlaubt"));
+                return;
+            }
+            PackagingJob job = jobs.get(parseJobId(path.substring("/jobs/".length())));
+            if (job == null) {
+                respond(exchange, 404, error("Job nicht gefunden"));
+            } else {
+                respond(exchange, 200, job.toJson());
+            }
+        } catch (IllegalArgumentException ex) {
+            respond(exchange, 400, error(ex.getMessage()));
+        } catch (RuntimeException ex) {
+            LOGGER.error("Fehler bei Anfrage {}", exchange.getRequestURI(), ex);
+            respond(exchange, 500, error("Interner Fehler"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        String municipality = required(parameters, "municipality");
+        DataType dataType = DataType.fromValue(required(parameters, "dataType"));
+        int runNumber = parseInt(required(parameters, "runNumber"), "runNumber");
+        int priority = parseInt(parameters.getOrDefault("priority", "0"), "priority");
+        long packageSizeMb = parseInt(parameters.getOrDefault("packageSizeMb", "900"), "packageSizeMb");
+        if (packageSizeMb < 1) {
+            throw new IllegalArgumentException("packageSizeMb muss mindestens 1 sein: " + packageSizeMb);
+        }
+        boolean scanCache = !Boolean.parseBoolean(parameters.getOrDefault("noScanCache", "false"));
+        boolean localityReadOrder = Boolean.parseBoolean(parameters.getOrDefault("localityReadOrder", "false"));
+        boolean deduplicate = Boolean.parseBoolean(parameters.getOrDefault("deduplicate", "false"));
+        if (municipality.contains("/") || municipality.contains("\\") || municipality.startsWith(".")) {
+            throw new IllegalArgumentException("Ungültige Gemeinde: " + municipality);
+        }
+
+        PackagingJob.Task task = taskFactory.create(municipality, dataType, runNumber, packageSizeMb * 1024 * 1024,
+                new PackagingOptions(scanCache, localityReadOrder, deduplicate));
+        PackagingJob job = new PackagingJob(nextJobId.getAndIncrement(), municipality, dataType, runNumber, priority, task);
+        synchronized (jobs) {
+            pruneFinishedJobs();
+            boolean conflict = jobs.values().stream().anyMatch(other -> other.isActive() && other.targetsSameRun(job));
+            if (conflict) {
+                respond(exchange, 409, error("Für diesen Lauf ist bereits ein Job aktiv"));
+                return;
+            }
+            jobs.put(job.id(), job);
+        }
+        LOGGER.info("Job {} eingereiht: {} ({}), Lauf {}, Priorität {}", job.id(), municipality, dataType, runNumber, priority);
+        jobExecutor.execute(job);
+        respond(exchange, 202, job.toJson());
+    }
+
+    /** Drops all but the newest {@code keepFinishedJobs} finished jobs. Callers hold the lock on {@code jobs}. */
+    private void pruneFinishedJobs() {
+        List<Long> finished = jobs.values().stream()
+                .filter(PackagingJob::isFinished)
+                .map(PackagingJob::id)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        for (int i = keepFinishedJobs; i < finished.size(); i++) {
+            jobs.remove(finished.get(i));
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Parameter fehlt: " + name);
+        }
+        return value;
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Ungültige Zahl für " + name + ": " + value);
+        }
+    }
+
+    private static long parseJobId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Ungültige Job-ID: " + value);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
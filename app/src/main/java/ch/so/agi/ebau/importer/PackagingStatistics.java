@@ -23,6 +23,7 @@ public final class PackagingStatistics {
     private final Map<String, Integer> documentCounts = new HashMap<>();
     private final Map<String, Map<String, Integer>> statusCounts = new HashMap<>();
     private final Map<String, Long> uncompressedPackageSizes = new HashMap<>();
+    private final List<DuplicateGroup> duplicateGroups = new ArrayList<>();
 
     public PackagingStatistics(int originalRowCount) {
         this.originalRowCount = originalRowCount;
@@ -56,6 +57,10 @@ public final class PackagingStatistics {
         statusCounts.put(packageName, totals);
     }
 
+    public void addDuplicateGroup(String hash, long fileBytes, List<String> files, int hardLinks) {
+        duplicateGroups.add(new DuplicateGroup(hash, fileBytes, files, hardLinks));
+    }
+
     public void write(Path target) throws IOException {
         Files.createDirectories(target.getParent());
         try (Workbook workbook = new XSSFWorkbook()) {
@@ -109,12 +114,50 @@ public final class PackagingStatistics {
                 detailRowIndex++;
             }
 
+            if (!duplicateGroups.isEmpty()) {
+                writeDuplicates(workbook.createSheet("Duplicates"));
+            }
+
             try (OutputStream out = Files.newOutputStream(target)) {
                 workbook.write(out);
             }
         }
     }
 
+    /**
+     * Writes one row per file. Copies, hard links and saved bytes are only set on the first row of a group so that
+     * columns can be summed.
+     */
+    private void writeDuplicates(Sheet sheet) {
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("SHA-256");
+        header.createCell(1).setCellValue("Size [Byte]");
+        header.createCell(2).setCellValue("Anzahl Kopien");
+        header.createCell(3).setCellValue("Hardlinks");
+        header.createCell(4).setCellValue("Eingesparte Bytes");
+        header.createCell(5).setCellValue("Datei");
+        int rowIndex = 1;
+        long totalSaved = 0L;
+        for (DuplicateGroup group : duplicateGroups) {
+            long savedBytes = group.fileBytes() * group.hardLinks();
+            totalSaved += savedBytes;
+            for (int i = 0; i < group.files().size(); i++) {
+                Row row = sheet.createRow(rowIndex++);
+                row.createCell(0).setCellValue(group.hash());
+                row.createCell(1).setCellValue(group.fileBytes());
+                if (i == 0) {
+                    row.createCell(2).setCellValue(group.files().size());
+                    row.createCell(3).setCellValue(group.hardLinks());
+                    row.createCell(4).setCellValue(savedBytes);
+                }
+                row.createCell(5).setCellValue(group.files().get(i));
+            }
+        }
+        Row totalRow = sheet.createRow(rowIndex);
+        totalRow.createCell(0).setCellValue("Total");
+        totalRow.createCell(4).setCellValue(totalSaved);
+    }
+
     private int calculatePackagedRows() {
         return (int) assignments.stream().map(Assignment::folderId).distinct().count();
     }
@@ -145,6 +188,9 @@ public final class PackagingStatistics {
         return builder.toString();
     }
 
+    private record DuplicateGroup(String hash, long fileBytes, List<String> files, int hardLinks) {
+    }
+
     private record Assignment(String packageName, String folderId, long uncompressedBytes, long zipBytes) {
     }
 }
@@ -0,0 +1,167 @@
+package ch.so.agi.ebau.importer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads files ahead of a consumer that processes them in a fixed order (e.g. the zip entry order).
+ * <p>
+ * Files are split into windows of at most half the memory budget. Within a window the files are read in physical
+ * order (device and inode number) to reduce seeking on rotating or network storage; the consumer still receives the
+ * content in its own order. Files larger than half the budget are not prefetched and are read directly by the
+ * consumer.
+ */
+final class ReadScheduler implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadScheduler.class);
+    static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    private final Map<Path, Prefetch> prefetched = new ConcurrentHashMap<>();
+    private final Semaphore budget;
+    private final ExecutorService prefetcher;
+
+    ReadScheduler(List<Path> readOrder, long budgetBytes) throws IOException {
+        int permits = (int) Math.min(budgetBytes, Integer.MAX_VALUE);
+        long windowLimit = permits / 2;
+        this.budget = new Semaphore(permits);
+        List<List<Prefetch>> windows = new ArrayList<>();
+        List<Prefetch> window = new ArrayList<>();
+        long windowBytes = 0L;
+        for (Path file : readOrder) {
+            long size = Files.size(file);
+            if (size > windowLimit) {
+                continue;
+            }
+            if (windowBytes + size > windowLimit) {
+                windows.add(window);
+                window = new ArrayList<>();
+                windowBytes = 0L;
+            }
+            Prefetch prefetch = new Prefetch(file, (int) size, new CompletableFuture<>());
+            prefetched.put(file, prefetch);
+            window.add(prefetch);
+            windowBytes += size;
+        }
+        if (!window.isEmpty()) {
+            windows.add(window);
+        }
+        this.prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "read-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prefetcher.execute(() -> prefetch(windows));
+    }
+
+    /**
+     * Sorts files by device and inode number. Files without a known inode keep their relative order.
+     */
+    static List<Path> sortByLocality(List<Path> files) {
+        List<Path> sorted = new ArrayList<>(files);
+        Map<Path, long[]> keys = new HashMap<>();
+        for (Path file : files) {
+            keys.put(file, localityKey(file));
+        }
+        sorted.sort(Comparator.<Path>comparingLong(file -> keys.get(file)[0]).thenComparingLong(file -> keys.get(file)[1]));
+        return sorted;
+    }
+
+    /**
+     * Opens {@code file}, using the prefetched content if available.
+     */
+    InputStream open(Path file) throws IOException {
+        Prefetch prefetch = prefetched.remove(file);
+        if (prefetch == null) {
+            return Files.newInputStream(file);
+        }
+        byte[] content;
+        try {
+            content = prefetch.future().join();
+        } catch (CompletionException ex) {
+            LOGGER.debug("Vorauslesen von {} fehlgeschlagen, lese direkt", file, ex.getCause());
+            return Files.newInputStream(file);
+        }
+        budget.release(prefetch.size());
+        return new ByteArrayInputStream(content);
+    }
+
+    boolean prefetches(Path file) {
+        return prefetched.containsKey(file);
+    }
+
+    int availableBudget() {
+        return budget.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        prefetcher.shutdownNow();
+        failUnfinished();
+    }
+
+    private void prefetch(List<List<Prefetch>> windows) {
+        try {
+            for (List<Prefetch> window : windows) {
+                Map<Path, Prefetch> byFile = new HashMap<>();
+                for (Prefetch prefetch : window) {
+                    byFile.put(prefetch.file(), prefetch);
+                }
+                for (Path file : sortByLocality(window.stream().map(Prefetch::file).toList())) {
+                    Prefetch prefetch = byFile.get(file);
+                    try {
+                        budget.acquire(prefetch.size());
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    try {
+                        prefetch.future().complete(Files.readAllBytes(file));
+                    } catch (IOException | RuntimeException ex) {
+                        budget.release(prefetch.size());
+                        prefetch.future().completeExceptionally(ex);
+                    }
+                }
+            }
+        } finally {
+            // after an interrupt or an Error (e.g. OutOfMemoryError) the consumer must not wait for files never read
+            failUnfinished();
+        }
+    }
+
+    private void failUnfinished() {
+        IOException stopped = new IOException("Vorauslesen abgebrochen");
+        for (Prefetch prefetch : prefetched.values()) {
+            prefetch.future().completeExceptionally(stopped);
+        }
+    }
+
+    private static long[] localityKey(Path file) {
+        try {
+            Map<String, Object> attributes = Files.readAttributes(file, "unix:dev,ino");
+            if (attributes.get("dev") instanceof Number dev && attributes.get("ino") instanceof Number ino) {
+                return new long[] { dev.longValue(), ino.longValue() };
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException ex) {
+            // no inode information on this file system, keep the given order
+        }
+        return new long[] { 0L, 0L };
+    }
+
+    private record Prefetch(Path file, int size, CompletableFuture<byte[]> future) {
+    }
+}
@@ -0,0 +1,249 @@
+package ch.so.agi.ebau.importer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent metadata cache for a dossier tree (one file per municipality and data type).
+ * <p>
+ * Each directory is stored with its modification time, the summed size and number of the files directly inside it and
+ * its sub directories. A directory whose modification time is unchanged is not listed again; only its sub directories
+ * are checked. File contents changed in place (without adding, removing or renaming an entry) do not touch the
+ * directory modification time and are therefore not detected.
+ */
+final class ScanCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanCache.class);
+    private static final int MAGIC = 0x45534331; // "ESC1"
+    private static final int VERSION = 1;
+    private static final long UNTRUSTED_MTIME = -1L;
+    /** Directories modified this recently may still change within the same timestamp tick and are not cached. */
+    private static final long MTIME_SAFETY_MILLIS = 2_000L;
+    /** Smallest serialized node: empty name (2), mtime (8), bytes (8), file count (4), child count (4). */
+    private static final int MIN_NODE_BYTES = 26;
+    private static final int MAX_DEPTH = 256;
+
+    private final Path cacheFile;
+    private final Map<String, DirectoryNode> previous;
+    private int hits;
+    private int misses;
+
+    private ScanCache(Path cacheFile, Map<String, DirectoryNode> previous) {
+        this.cacheFile = cacheFile;
+        this.previous = previous;
+    }
+
+    public static Path cacheFile(Path municipalityFolder, DataType dataType) {
+        return municipalityFolder.resolve("Import").resolve(".scan-cache-" + dataType.dataFolderName() + ".bin");
+    }
+
+    public static ScanCache load(Path cacheFile) {
+        if (cacheFile == null || !Files.isRegularFile(cacheFile)) {
+            return new ScanCache(cacheFile, Map.of());
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.warn("Scan-Cache {} hat ein unbekanntes Format und wird ignoriert", cacheFile);
+                return new ScanCache(cacheFile, Map.of());
+            }
+            Map<String, DirectoryNode> nodes = new HashMap<>();
+            long maxNodes = Files.size(cacheFile) / MIN_NODE_BYTES;
+            register(readNode(in, new NodeBudget(maxNodes), 0), "", nodes);
+            return new ScanCache(cacheFile, nodes);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warn("Scan-Cache {} kann nicht gelesen werden und wird ignoriert: {}", cacheFile, ex.getMessage());
+            return new ScanCache(cacheFile, Map.of());
+        }
+    }
+
+    /**
+     * Scans {@code root} and returns its directory tree, reusing cached directories whose modification time is
+     * unchanged.
+     */
+    public DirectoryNode scan(Path root) throws IOException {
+        long trustBefore = System.currentTimeMillis() - MTIME_SAFETY_MILLIS;
+        return scanDirectory(root, "", trustBefore);
+    }
+
+    public void save(DirectoryNode root) throws IOException {
+        if (cacheFile == null) {
+            return;
+        }
+        Files.createDirectories(cacheFile.getParent());
+        Path tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeNode(out, root);
+            }
+            try {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    public int hits() {
+        return hits;
+    }
+
+    public int misses() {
+        return misses;
+    }
+
+    private DirectoryNode scanDirectory(Path directory, String relativePath, long trustBefore) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(directory, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        long mtime = attributes.lastModifiedTime().toMillis();
+        DirectoryNode cached = previous.get(relativePath);
+        if (cached != null && cached.mtime() != UNTRUSTED_MTIME && cached.mtime() == mtime) {
+            hits++;
+            List<DirectoryNode> children = new ArrayList<>(cached.children().size());
+            for (DirectoryNode child : cached.children()) {
+                try {
+                    children.add(scanDirectory(directory.resolve(child.name()), childPath(relativePath, child.name()),
+                            trustBefore));
+                } catch (NoSuchFileException ex) {
+                    LOGGER.debug("Verzeichnis {} aus dem Scan-Cache existiert nicht mehr", child.name());
+                }
+            }
+            return new DirectoryNode(cached.name(), mtime, cached.directBytes(), cached.directFiles(), children);
+        }
+
+        misses++;
+        long directBytes = 0L;
+        int directFiles = 0;
+        List<Path> subDirectories = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                BasicFileAttributes entryAttributes = Files.readAttributes(entry, BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                if (entryAttributes.isDirectory()) {
+                    subDirectories.add(entry);
+                } else if (entryAttributes.isRegularFile()) {
+                    directBytes += entryAttributes.size();
+                    directFiles++;
+                } else if (entryAttributes.isSymbolicLink() && Files.isRegularFile(entry)) {
+                    directBytes += Files.size(entry);
+                    directFiles++;
+                }
+            }
+        }
+        Collections.sort(subDirectories);
+        List<DirectoryNode> children = new ArrayList<>(subDirectories.size());
+        for (Path subDirectory : subDirectories) {
+            String name = subDirectory.getFileName().toString();
+            children.add(scanDirectory(subDirectory, childPath(relativePath, name), trustBefore));
+        }
+        long storedMtime = mtime < trustBefore ? mtime : UNTRUSTED_MTIME;
+        String name = directory.getFileName() == null ? "" : directory.getFileName().toString();
+        return new DirectoryNode(name, storedMtime, directBytes, directFiles, children);
+    }
+
+    private static String childPath(String parent, String name) {
+        return parent.isEmpty() ? name : parent + "/" + name;
+    }
+
+    private static void writeNode(DataOutputStream out, DirectoryNode node) throws IOException {
+        out.writeUTF(node.name());
+        out.writeLong(node.mtime());
+        out.writeLong(node.directBytes());
+        out.writeInt(node.directFiles());
+        out.writeInt(node.children().size());
+        for (DirectoryNode child : node.children()) {
+            writeNode(out, child);
+        }
+    }
+
+    /**
+     * Reads a node and its children. Counts and depth are checked against the file size so that a truncated or
+     * corrupted cache fails with an {@link IOException} instead of exhausting memory or stack.
+     */
+    private static DirectoryNode readNode(DataInputStream in, NodeBudget budget, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Verzeichnistiefe im Scan-Cache übersteigt " + MAX_DEPTH);
+        }
+        budget.take(1);
+        String name = in.readUTF();
+        long mtime = in.readLong();
+        long directBytes = in.readLong();
+        int directFiles = in.readInt();
+        int childCount = in.readInt();
+        if (directBytes < 0 || directFiles < 0 || childCount < 0) {
+            throw new IOException("Ungültige Werte im Scan-Cache für " + name);
+        }
+        budget.check(childCount);
+        List<DirectoryNode> children = new ArrayList<>(childCount);
+        for (int i = 0; i < childCount; i++) {
+            children.add(readNode(in, budget, depth + 1));
+        }
+        return new DirectoryNode(name, mtime, directBytes, directFiles, children);
+    }
+
+    private static void register(DirectoryNode node, String relativePath, Map<String, DirectoryNode> nodes) {
+        nodes.put(relativePath, node);
+        for (DirectoryNode child : node.children()) {
+            register(child, childPath(relativePath, child.name()), nodes);
+        }
+    }
+
+    /** Number of nodes the cache file can still hold given its size. */
+    private static final class NodeBudget {
+        private long remaining;
+
+        NodeBudget(long remaining) {
+            this.remaining = remaining;
+        }
+
+        void check(int count) throws IOException {
+            if (count > remaining) {
+                throw new IOException("Scan-Cache ist beschädigt: " + count + " Einträge angekündigt, höchstens " + remaining
+                        + " möglich");
+            }
+        }
+
+        void take(int count) throws IOException {
+            check(count);
+            remaining -= count;
+        }
+    }
+
+    /** Directory metadata as stored in the cache; totals include all sub directories. */
+    record DirectoryNode(String name, long mtime, long directBytes, int directFiles, List<DirectoryNode> children) {
+        long totalBytes() {
+            long total = directBytes;
+            for (DirectoryNode child : children) {
+                total += child.totalBytes();
+            }
+            return total;
+        }
+
+        int totalFiles() {
+            int total = directFiles;
+            for (DirectoryNode child : children) {
+                total += child.totalFiles();
+            }
+            return total;
+        }
+    }
+}
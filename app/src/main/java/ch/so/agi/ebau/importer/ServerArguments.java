@@ -0,0 +1,77 @@
+package ch.so.agi.ebau.importer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+final class ServerArguments {
+    static final String COMMAND = "serve";
+
+    private final Path rootPath;
+    private final int port;
+    private final int maxJobs;
+    private final int maxIo;
+    private final int keepFinishedJobs;
+
+    private ServerArguments(Path rootPath, int port, int maxJobs, int maxIo, int keepFinishedJobs) {
+        this.rootPath = rootPath;
+        this.port = port;
+        this.maxJobs = maxJobs;
+        this.maxIo = maxIo;
+        this.keepFinishedJobs = keepFinishedJobs;
+    }
+
+    public static ServerArguments parse(String[] args) {
+        if (args.length < 1 || !args[0].equals(COMMAND)) {
+            throw new IllegalArgumentException("Usage: serve [--root=/pfad] [--port=8085] [--maxJobs=2] [--maxIo=1] [--keepFinishedJobs=100]");
+        }
+
+        Path root = Paths.get(".");
+        int port = 8085;
+        int maxJobs = 2;
+        int maxIo = 1;
+        int keepFinishedJobs = 100;
+
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--root=")) {
+                root = Paths.get(arg.substring("--root=".length()));
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--maxJobs=")) {
+                maxJobs = Integer.parseInt(arg.substring("--maxJobs=".length()));
+            } else if (arg.startsWith("--maxIo=")) {
+                maxIo = Integer.parseInt(arg.substring("--maxIo=".length()));
+            } else if (arg.startsWith("--keepFinishedJobs=")) {
+                keepFinishedJobs = Integer.parseInt(arg.substring("--keepFinishedJobs=".length()));
+            }
+        }
+        if (maxJobs < 1 || maxIo < 1) {
+            throw new IllegalArgumentException("--maxJobs und --maxIo müssen mindestens 1 sein");
+        }
+        if (keepFinishedJobs < 0) {
+            throw new IllegalArgumentException("--keepFinishedJobs darf nicht negativ sein");
+        }
+
+        return new ServerArguments(root.toAbsolutePath().normalize(), port, maxJobs, maxIo, keepFinishedJobs);
+    }
+
+    public Path rootPath() {
+        return rootPath;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public int maxJobs() {
+        return maxJobs;
+    }
+
+    public int maxIo() {
+        return maxIo;
+    }
+
+    public int keepFinishedJobs() {
+        return keepFinishedJobs;
+    }
+}
@@ -0,0 +1,42 @@
+package ch.so.agi.ebau.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DossierIndexTest {
+
+    @Test
+    void rejectsImplausibleCountsInCorruptIndex(@TempDir Path tempDir) throws Exception {
+        Path indexPath = tempDir.resolve("Biberist_1.idx");
+        DossierIndex.of(100L, List.of(new DossierIndex.Entry("A/plan.pdf", 0L, 10L, 10L, 0L, ZipEntry.STORED)))
+                .write(indexPath);
+        assertThat(DossierIndex.read(indexPath).dossierIds()).containsExactly("A");
+
+        // header: magic, version, zip size; then the dossier count, the ID "A" and its entry count
+        patchInt(indexPath, 16, Integer.MAX_VALUE);
+        assertThatThrownBy(() -> DossierIndex.read(indexPath))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("beschädigt");
+
+        patchInt(indexPath, 16, 1);
+        patchInt(indexPath, 23, -1);
+        assertThatThrownBy(() -> DossierIndex.read(indexPath))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("beschädigt");
+    }
+
+    private void patchInt(Path file, int offset, int value) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        ByteBuffer.wrap(content).putInt(offset, value);
+        Files.write(file, content);
+    }
+}
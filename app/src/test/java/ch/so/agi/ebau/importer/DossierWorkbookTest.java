@@ -0,0 +1,101 @@
+package ch.so.agi.ebau.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import ch.so.agi.ebau.importer.DossierWorkbook.DossierEntry;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DossierWorkbookTest {
+
+    @Test
+    void readsCsvWithSameNormalizationAsXlsx(@TempDir Path tempDir) throws Exception {
+        Path csv = tempDir.resolve("dossiers.csv");
+        Files.writeString(csv, """
+                ID;Name;SUBMIT-DATE;COORDINATE-N;COORDINATE-E;STATUS\r
+                A;"Neubau; ""Haus"" Süd";2023-04-01;1'234'567,5;2600000;APPROVED\r
+                \r
+                ;ohne ID;;;;\r
+                B;"zwei
+                Zeilen";1.4.2023;;;DONE\r
+                """, StandardCharsets.UTF_8);
+
+        DossierWorkbook workbook = DossierWorkbook.read(csv);
+
+        assertThat(workbook.entries()).extracting(DossierEntry::id).containsExactly("A", "B");
+        assertThat(workbook.headerIndex("STATUS")).isEqualTo(5);
+        assertThat(workbook.entries().get(0).values())
+                .containsExactly("A", "Neubau; \"Haus\" Süd", "01.04.2023", "1234567.50", "2600000.00", "APPROVED");
+        assertThat(workbook.entries().get(1).values())
+                .containsExactly("B", "zwei\nZeilen", "01.04.2023", "", "", "DONE");
+
+        Path xlsx = tempDir.resolve("filtered.xlsx");
+        workbook.writeFiltered(xlsx, List.of(workbook.entries().get(0)));
+        assertThat(DossierWorkbook.read(xlsx).entries()).extracting(DossierEntry::id).containsExactly("A");
+    }
+
+    @Test
+    void convertsOnlyValuesThatAreExactlyAValidDate(@TempDir Path tempDir) throws Exception {
+        Path csv = tempDir.resolve("dossiers.csv");
+        Files.writeString(csv, """
+                ID;SUBMIT-DATE;DESCRIPTION
+                A;2023-04-01T10:15:30;2023-04-01 Umbau Garage
+                B;2023-13-45;31.2.2023
+                C;2023-02-30;1.4.2023 bewilligt
+                """, StandardCharsets.UTF_8);
+
+        DossierWorkbook workbook = DossierWorkbook.read(csv);
+
+        assertThat(workbook.entries().get(0).values()).containsExactly("A", "01.04.2023", "2023-04-01 Umbau Garage");
+        assertThat(workbook.entries().get(1).values()).containsExactly("B", "2023-13-45", "31.2.2023");
+        assertThat(workbook.entries().get(2).values()).containsExactly("C", "2023-02-30", "1.4.2023 bewilligt");
+    }
+
+    @Test
+    void streamsFieldsAcrossBufferBoundariesAndFallsBackToWindows1252(@TempDir Path tempDir) throws Exception {
+        Path csv = tempDir.resolve("dossiers.csv");
+        String longName = "x".repeat(20_000);
+        String content = "ID;Name\nA;\"" + longName + "\"\"\"\n" + "B;Baugesuch\n".repeat(5_000) + "C;Größe\n";
+        Files.write(csv, content.getBytes(Charset.forName("windows-1252")));
+
+        DossierWorkbook workbook = DossierWorkbook.read(csv);
+
+        assertThat(workbook.entries()).hasSize(5_002);
+        assertThat(workbook.entries().get(0).values()).containsExactly("A", longName + "\"");
+        assertThat(workbook.entries().get(5_001).values()).containsExactly("C", "Größe");
+    }
+
+    @Test
+    void keepsUtf8WithByteOrderMarkDespiteInvalidByte(@TempDir Path tempDir) throws Exception {
+        Path csv = tempDir.resolve("dossiers.csv");
+        byte[] head = "\uFEFFID;Name\nA;Größe\n".getBytes(StandardCharsets.UTF_8);
+        byte[] tail = "B;Garage\n".getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[head.length + 1 + tail.length];
+        System.arraycopy(head, 0, content, 0, head.length);
+        content[head.length] = (byte) 0xFF;
+        System.arraycopy(tail, 0, content, head.length + 1, tail.length);
+        Files.write(csv, content);
+
+        DossierWorkbook workbook = DossierWorkbook.read(csv);
+
+        assertThat(workbook.headerIndex("ID")).isEqualTo(0);
+        assertThat(workbook.entries().get(0).values()).containsExactly("A", "Größe");
+        assertThat(workbook.entries()).hasSize(2);
+    }
+
+    @Test
+    void rejectsTsvWithoutIdColumn(@TempDir Path tempDir) throws Exception {
+        Path tsv = tempDir.resolve("dossiers.tsv");
+        Files.writeString(tsv, "Name\tStatus\nA\tDONE\n");
+
+        assertThatThrownBy(() -> DossierWorkbook.read(tsv))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'ID' column");
+    }
+}
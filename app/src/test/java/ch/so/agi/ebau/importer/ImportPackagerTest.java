@@ -6,7 +6,13 @@ import ch.so.agi.ebau.importer.DossierWorkbook.DossierEntry;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -61,6 +67,105 @@ class ImportPackagerTest {
         }
     }
 
+    @Test
+    void reportsCopiedFolderSizeWhenScanCacheIsStale(@TempDir Path tempDir) throws Exception {
+        Path dataFolder = tempDir.resolve("Biberist").resolve("Testdaten");
+        writeDossier(dataFolder.resolve("dossiers.xlsx"), List.of("A"));
+        createFolderWithFile(dataFolder.resolve("A"), "a.txt", "hello");
+        FileTime past = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        Files.setLastModifiedTime(dataFolder.resolve("A"), past);
+        Files.setLastModifiedTime(dataFolder, past);
+        new ImportPackager(tempDir, 1000).execute("Biberist", DataType.TEST, 1);
+
+        // overwritten in place: the directory modification time does not change and the cached size is stale
+        Files.writeString(dataFolder.resolve("A").resolve("a.txt"), "hello world!");
+        Files.setLastModifiedTime(dataFolder.resolve("A"), past);
+        new ImportPackager(tempDir, 1000).execute("Biberist", DataType.TEST, 2);
+
+        Path stats = tempDir.resolve(Path.of("Biberist", "Import", "Testlauf_2", "statistics.xlsx"));
+        try (var workbook = WorkbookFactory.create(Files.newInputStream(stats))) {
+            var sheet = workbook.getSheet("Packages");
+            assertThat(sheet.getRow(1).getCell(1).getStringCellValue()).isEqualTo("A");
+            assertThat(sheet.getRow(1).getCell(2).getNumericCellValue()).isEqualTo("hello world!".length());
+        }
+    }
+
+    @Test
+    void localityReadOrderProducesSameZipEntries(@TempDir Path tempDir) throws Exception {
+        Path dataFolder = tempDir.resolve("Biberist").resolve("Testdaten");
+        writeDossier(dataFolder.resolve("dossiers.xlsx"), List.of("A", "B"));
+        createFolderWithFile(dataFolder.resolve("A"), "a.txt", "hello");
+        createFolderWithFile(dataFolder.resolve("A").resolve("plans"), "plan.txt", "plan");
+        createFolderWithFile(dataFolder.resolve("B"), "b.txt", "other content");
+
+        new ImportPackager(tempDir, 1024).execute("Biberist", DataType.TEST, 1);
+        new ImportPackager(tempDir, 1024, new PackagingOptions(true, true, false)).execute("Biberist", DataType.TEST, 2);
+
+        Path importFolder = tempDir.resolve("Biberist").resolve("Import");
+        assertThat(zipContent(importFolder.resolve(Path.of("Testlauf_2", "Biberist_1.zip"))))
+                .containsExactlyElementsOf(zipContent(importFolder.resolve(Path.of("Testlauf_1", "Biberist_1.zip"))));
+    }
+
+    @Test
+    void writesDossierIndexForSingleDossierExtraction(@TempDir Path tempDir) throws Exception {
+        Path dataFolder = tempDir.resolve("Biberist").resolve("Testdaten");
+        writeDossier(dataFolder.resolve("dossiers.xlsx"), List.of("A", "B"));
+        createFolderWithFile(dataFolder.resolve("A").resolve("plans"), "plan.txt", "plan of A");
+        createFolderWithFile(dataFolder.resolve("B"), "b.txt", "content of B");
+
+        new ImportPackager(tempDir, 1024).execute("Biberist", DataType.TEST, 1);
+
+        Path zipPath = tempDir.resolve("Biberist").resolve(Path.of("Import", "Testlauf_1", "Biberist_1.zip"));
+        DossierIndex index = DossierIndex.read(DossierIndex.indexPath(zipPath));
+        assertThat(index.dossierIds()).containsExactlyInAnyOrder("", "A", "B");
+        assertThat(index.entries("A")).extracting(DossierIndex.Entry::name).containsExactly("A/plans/plan.txt");
+
+        Path target = tempDir.resolve("extracted");
+        assertThat(index.extract(zipPath, "B", target)).isEqualTo(1);
+        assertThat(target.resolve("B").resolve("b.txt")).hasContent("content of B");
+        assertThat(target.resolve("A")).doesNotExist();
+    }
+
+    @Test
+    void linksDuplicateDocumentsAndReportsThem(@TempDir Path tempDir) throws Exception {
+        Path dataFolder = tempDir.resolve("Biberist").resolve("Testdaten");
+        writeDossier(dataFolder.resolve("dossiers.xlsx"), List.of("A", "B"));
+        createFolderWithFile(dataFolder.resolve("A"), "formular.pdf", "standard form");
+        createFolderWithFile(dataFolder.resolve("B"), "formular.pdf", "standard form");
+        createFolderWithFile(dataFolder.resolve("B"), "plan.pdf", "other content");
+
+        new ImportPackager(tempDir, 20, new PackagingOptions(true, false, true)).execute("Biberist", DataType.TEST, 1);
+
+        Path runFolder = tempDir.resolve("Biberist").resolve(Path.of("Import", "Testlauf_1"));
+        Path first = runFolder.resolve(Path.of("Biberist_1", "A", "formular.pdf"));
+        Path second = runFolder.resolve(Path.of("Biberist_2", "B", "formular.pdf"));
+        assertThat(second).hasContent("standard form");
+        assertThat(Files.isSameFile(first, second)).isTrue();
+
+        try (var workbook = WorkbookFactory.create(Files.newInputStream(runFolder.resolve("statistics.xlsx")))) {
+            var sheet = workbook.getSheet("Duplicates");
+            assertThat(sheet.getRow(1).getCell(2).getNumericCellValue()).isEqualTo(2);
+            assertThat(sheet.getRow(1).getCell(4).getNumericCellValue()).isEqualTo("standard form".length());
+            assertThat(sheet.getRow(1).getCell(5).getStringCellValue()).isEqualTo("A/formular.pdf");
+            assertThat(sheet.getRow(2).getCell(5).getStringCellValue()).isEqualTo("B/formular.pdf");
+            assertThat(sheet.getRow(3).getCell(0).getStringCellValue()).isEqualTo("Total");
+        }
+    }
+
+    private List<String> zipContent(Path zipPath) throws IOException {
+        List<String> content = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            var entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".xlsx")) {
+                    content.add(entry.getName() + ":" + entry.getCrc());
+                }
+            }
+        }
+        return content;
+    }
+
     private void writeDossier(Path target, List<String> ids) throws IOException {
         try (var workbook = new org.apache.poi.xssf.usermodel.XSSFWorkbook()) {
             var sheet = workbook.createSheet("dossiers");
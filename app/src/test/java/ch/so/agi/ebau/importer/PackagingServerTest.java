@@ -0,0 +1,200 @@
+package ch.so.agi.ebau.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PackagingServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+    private PackagingServer server;
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void startsQueuedJobsByPriority(@TempDir Path tempDir) throws Exception {
+        startServer(tempDir, 10);
+
+        assertThat(post("municipality=Blocker&dataType=test&runNumber=1").statusCode()).isEqualTo(202);
+        awaitState(1, "RUNNING");
+        post("municipality=Low&dataType=test&runNumber=1&priority=1");
+        post("municipality=High&dataType=test&runNumber=1&priority=9");
+        post("municipality=Mid&dataType=test&runNumber=1&priority=5");
+        post("municipality=MidLater&dataType=test&runNumber=1&priority=5");
+        release.countDown();
+
+        awaitState(3, "DONE");
+        awaitState(2, "DONE");
+        assertThat(executed).containsExactly("Blocker", "High", "Mid", "MidLater", "Low");
+    }
+
+    @Test
+    void rejectsSecondActiveJobForSameRun(@TempDir Path tempDir) throws Exception {
+        startServer(tempDir, 10);
+
+        assertThat(post("municipality=Biberist&dataType=test&runNumber=4").statusCode()).isEqualTo(202);
+        HttpResponse<String> conflict = post("municipality=Biberist&dataType=t&runNumber=4");
+        HttpResponse<String> otherRun = post("municipality=Biberist&dataType=test&runNumber=5");
+
+        assertThat(conflict.statusCode()).isEqualTo(409);
+        assertThat(otherRun.statusCode()).isEqualTo(202);
+        release.countDown();
+        awaitState(1, "DONE");
+        assertThat(post("municipality=Biberist&dataType=test&runNumber=4").statusCode()).isEqualTo(202);
+    }
+
+    @Test
+    void rejectsInvalidParameters(@TempDir Path tempDir) throws Exception {
+        startServer(tempDir, 10);
+
+        assertThat(post("dataType=test&runNumber=1").statusCode()).isEqualTo(400);
+        assertThat(post("municipality=..%2Fetc&dataType=test&runNumber=1").statusCode()).isEqualTo(400);
+        assertThat(post("municipality=Biberist&runNumber=1").statusCode()).isEqualTo(400);
+        assertThat(post("municipality=Biberist&dataType=xyz&runNumber=1").statusCode()).isEqualTo(400);
+        assertThat(post("municipality=Biberist&dataType=test").statusCode()).isEqualTo(400);
+        assertThat(post("municipality=Biberist&dataType=test&runNumber=abc").statusCode()).isEqualTo(400);
+        assertThat(post("municipality=Biberist&dataType=test&runNumber=1&packageSizeMb=0").statusCode()).isEqualTo(400);
+        assertThat(get("/jobs/abc").statusCode()).isEqualTo(400);
+        assertThat(get("/jobs/42").statusCode()).isEqualTo(404);
+        assertThat(executed).isEmpty();
+    }
+
+    @Test
+    void reportsProgressAndFinalState(@TempDir Path tempDir) throws Exception {
+        startServer(tempDir, 10);
+        release.countDown();
+
+        post("municipality=Biberist&dataType=test&runNumber=1");
+        post("municipality=Fail&dataType=prod&runNumber=2");
+
+        String done = awaitState(1, "DONE");
+        assertThat(done).contains("\"municipality\":\"Biberist\"", "\"dataType\":\"TEST\"", "\"completedPackages\":2",
+                "\"totalPackages\":2", "\"error\":null");
+        String failed = awaitState(2, "FAILED");
+        assertThat(failed).contains("\"completedPackages\":1", "\"totalPackages\":2", "\"error\":\"disk full\"");
+        assertThat(get("/jobs").body()).contains("\"id\":1", "\"id\":2");
+    }
+
+    @Test
+    void marksJobFailedAfterErrorAndAcceptsSameRunAgain(@TempDir Path tempDir) throws Exception {
+        startServer(tempDir, 10);
+        release.countDown();
+
+        post("municipality=Crash&dataType=test&runNumber=1");
+
+        assertThat(awaitState(1, "FAILED")).contains("\"error\":\"Java heap space\"");
+        assertThat(post("municipality=Crash&dataType=test&runNumber=1").statusCode()).isEqualTo(202);
+        awaitState(2, "FAILED");
+    }
+
+    @Test
+    void stopWaitsBoundedTimeAndDropsQueuedJobs(@TempDir Path tempDir) throws Exception {
+        startServer(tempDir, 10);
+        post("municipality=Blocker&dataType=test&runNumber=1");
+        awaitState(1, "RUNNING");
+        post("municipality=Queued&dataType=test&runNumber=1");
+
+        long start = System.nanoTime();
+        server.stop(Duration.ofMillis(200));
+        server = null;
+        release.countDown();
+
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThanOrEqualTo(5L);
+        Thread.sleep(200);
+        assertThat(executed).isEmpty();
+    }
+
+    @Test
+    void keepsOnlyNewestFinishedJobs(@TempDir Path tempDir) throws Exception {
+        startServer(tempDir, 1);
+        release.countDown();
+
+        post("municipality=A&dataType=test&runNumber=1");
+        awaitState(1, "DONE");
+        post("municipality=B&dataType=test&runNumber=1");
+        awaitState(2, "DONE");
+        post("municipality=C&dataType=test&runNumber=1");
+        awaitState(3, "DONE");
+
+        assertThat(get("/jobs/1").statusCode()).isEqualTo(404);
+        assertThat(get("/jobs/2").statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    void reportsFailureOfRealPackagingRun(@TempDir Path tempDir) throws Exception {
+        server = new PackagingServer(tempDir, 0, 1, 1, 10);
+        server.start();
+
+        post("municipality=Missing&dataType=test&runNumber=1");
+
+        assertThat(awaitState(1, "FAILED")).contains("Data folder not found");
+    }
+
+    private void startServer(Path rootPath, int keepFinishedJobs) throws IOException {
+        server = new PackagingServer(rootPath, 0, 1, 1, keepFinishedJobs,
+                (municipality, dataType, runNumber, packageSizeBytes, options) -> listener -> {
+                    if (!release.await(10, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("not released");
+                    }
+                    executed.add(municipality);
+                    listener.packagesPlanned(2);
+                    listener.packageCreated(municipality + "_1");
+                    if (municipality.equals("Fail")) {
+                        throw new IOException("disk full");
+                    }
+                    if (municipality.equals("Crash")) {
+                        throw new OutOfMemoryError("Java heap space");
+                    }
+                    listener.packageCreated(municipality + "_2");
+                });
+        server.start();
+    }
+
+    private String awaitState(long jobId, String state) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        String body = "";
+        while (System.nanoTime() < deadline) {
+            body = get("/jobs/" + jobId).body();
+            if (body.contains("\"state\":\"" + state + "\"")) {
+                return body;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Job " + jobId + " did not reach " + state + ": " + body);
+    }
+
+    private HttpResponse<String> post(String query) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri("/jobs?" + query))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.port() + path);
+    }
+}
@@ -0,0 +1,37 @@
+package ch.so.agi.ebau.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PackagingStatisticsTest {
+
+    @Test
+    void writesOneDuplicatesRowPerFileForLargeGroups(@TempDir Path tempDir) throws Exception {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            files.add("Baugesuch_" + i + "/Dokumente/Planunterlagen/Situationsplan_Massstab_1_500_unterschrieben.pdf");
+        }
+        PackagingStatistics statistics = new PackagingStatistics(0);
+        statistics.addDuplicateGroup("abc", 100L, files, files.size() - 1);
+        Path target = tempDir.resolve("statistics.xlsx");
+
+        statistics.write(target);
+
+        try (var workbook = WorkbookFactory.create(Files.newInputStream(target))) {
+            var sheet = workbook.getSheet("Duplicates");
+            assertThat(sheet.getLastRowNum()).isEqualTo(files.size() + 1);
+            assertThat(sheet.getRow(1).getCell(2).getNumericCellValue()).isEqualTo(files.size());
+            assertThat(sheet.getRow(1).getCell(4).getNumericCellValue()).isEqualTo(100.0 * (files.size() - 1));
+            assertThat(sheet.getRow(2).getCell(2)).isNull();
+            assertThat(sheet.getRow(files.size()).getCell(5).getStringCellValue()).isEqualTo(files.get(files.size() - 1));
+            assertThat(sheet.getRow(files.size() + 1).getCell(4).getNumericCellValue()).isEqualTo(100.0 * (files.size() - 1));
+        }
+    }
+}
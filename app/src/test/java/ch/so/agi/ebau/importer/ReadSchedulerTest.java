@@ -0,0 +1,95 @@
+package ch.so.agi.ebau.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReadSchedulerTest {
+    private static final int BUDGET = 4096;
+
+    @Test
+    void deliversContentInConsumerOrderWithinSmallBudget(@TempDir Path tempDir) throws Exception {
+        Random random = new Random(42);
+        List<Path> files = new ArrayList<>();
+        int[] sizes = { 100, 1500, 3000, 0, 2048, 700, 9000, 1200, 2049, 50, 1900, 1900 };
+        for (int i = 0; i < sizes.length; i++) {
+            byte[] content = new byte[sizes[i]];
+            random.nextBytes(content);
+            Path file = tempDir.resolve("file" + i);
+            Files.write(file, content);
+            files.add(file);
+        }
+
+        try (ReadScheduler scheduler = new ReadScheduler(files, BUDGET)) {
+            assertThat(scheduler.prefetches(files.get(0))).isTrue();
+            assertThat(scheduler.prefetches(files.get(4))).isTrue();
+            assertThat(scheduler.prefetches(files.get(2))).isFalse();
+            assertThat(scheduler.prefetches(files.get(6))).isFalse();
+            assertThat(scheduler.prefetches(files.get(8))).isFalse();
+
+            for (Path file : files) {
+                try (InputStream in = scheduler.open(file)) {
+                    assertThat(in.readAllBytes()).isEqualTo(Files.readAllBytes(file));
+                }
+                assertThat(scheduler.availableBudget()).isLessThanOrEqualTo(BUDGET);
+            }
+            assertThat(scheduler.availableBudget()).isEqualTo(BUDGET);
+        }
+    }
+
+    @Test
+    void fallsBackToDirectReadsWhenPrefetchingStops(@TempDir Path tempDir) throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Path file = tempDir.resolve("file" + i);
+            Files.writeString(file, String.valueOf(i).repeat(1500));
+            files.add(file);
+        }
+        ReadScheduler scheduler = new ReadScheduler(files, BUDGET);
+        // the prefetcher blocks once the budget is used up; closing stops it before the remaining files are read
+        scheduler.close();
+
+        for (Path file : files) {
+            try (InputStream in = scheduler.open(file)) {
+                assertThat(in.readAllBytes()).isEqualTo(Files.readAllBytes(file));
+            }
+        }
+    }
+
+    @Test
+    void sortsByAscendingInode(@TempDir Path tempDir) throws Exception {
+        List<Path> files = new ArrayList<>();
+        Map<Path, Long> inodes = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            Path file = tempDir.resolve("f" + i);
+            Files.writeString(file, "x");
+            files.add(file);
+            Object inode;
+            try {
+                inode = Files.getAttribute(file, "unix:ino");
+            } catch (UnsupportedOperationException | IllegalArgumentException ex) {
+                inode = null;
+            }
+            assumeTrue(inode instanceof Number, "file system does not report inode numbers");
+            inodes.put(file, ((Number) inode).longValue());
+        }
+        List<Path> byInode = new ArrayList<>(files);
+        byInode.sort(Comparator.comparingLong(inodes::get));
+        List<Path> shuffled = new ArrayList<>(files);
+        Collections.shuffle(shuffled, new Random(7));
+
+        assertThat(ReadScheduler.sortByLocality(shuffled)).containsExactlyElementsOf(byInode);
+    }
+}
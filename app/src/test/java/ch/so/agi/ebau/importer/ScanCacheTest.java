@@ -0,0 +1,83 @@
+package ch.so.agi.ebau.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.so.agi.ebau.importer.ScanCache.DirectoryNode;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanCacheTest {
+
+    @Test
+    void reusesUnchangedDirectoriesAndRescansModifiedOnes(@TempDir Path tempDir) throws Exception {
+        Path dataFolder = tempDir.resolve("Testdaten");
+        Files.createDirectories(dataFolder.resolve("A").resolve("plans"));
+        Files.writeString(dataFolder.resolve("A").resolve("a.txt"), "hello");
+        Files.writeString(dataFolder.resolve("A").resolve("plans").resolve("plan.txt"), "plan");
+        Files.createDirectories(dataFolder.resolve("B"));
+        Files.writeString(dataFolder.resolve("B").resolve("b.txt"), "bb");
+        backdateDirectories(dataFolder);
+        Path cacheFile = tempDir.resolve("cache.bin");
+
+        ScanCache firstRun = ScanCache.load(cacheFile);
+        DirectoryNode first = firstRun.scan(dataFolder);
+        firstRun.save(first);
+        assertThat(firstRun.hits()).isZero();
+        assertThat(firstRun.misses()).isEqualTo(4);
+        assertThat(first.children()).extracting(DirectoryNode::name).containsExactly("A", "B");
+        assertThat(first.children().get(0).totalBytes()).isEqualTo(9);
+        assertThat(first.children().get(0).totalFiles()).isEqualTo(2);
+
+        Files.writeString(dataFolder.resolve("B").resolve("c.txt"), "ccc");
+        Files.setLastModifiedTime(dataFolder.resolve("B"), FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+
+        ScanCache secondRun = ScanCache.load(cacheFile);
+        DirectoryNode second = secondRun.scan(dataFolder);
+        assertThat(secondRun.hits()).isEqualTo(3);
+        assertThat(secondRun.misses()).isEqualTo(1);
+        assertThat(second.children().get(0).totalBytes()).isEqualTo(9);
+        assertThat(second.children().get(1).totalBytes()).isEqualTo(5);
+        assertThat(second.children().get(1).totalFiles()).isEqualTo(2);
+    }
+
+    @Test
+    void ignoresCacheWithImplausibleChildCount(@TempDir Path tempDir) throws Exception {
+        Path dataFolder = tempDir.resolve("Testdaten");
+        Files.createDirectories(dataFolder.resolve("A"));
+        Files.writeString(dataFolder.resolve("A").resolve("a.txt"), "hello");
+        Path cacheFile = tempDir.resolve("cache.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(cacheFile))) {
+            out.writeInt(0x45534331);
+            out.writeInt(1);
+            out.writeUTF("Testdaten");
+            out.writeLong(0L);
+            out.writeLong(0L);
+            out.writeInt(0);
+            out.writeInt(Integer.MAX_VALUE);
+        }
+
+        ScanCache scanCache = ScanCache.load(cacheFile);
+        DirectoryNode root = scanCache.scan(dataFolder);
+
+        assertThat(scanCache.hits()).isZero();
+        assertThat(root.children()).extracting(DirectoryNode::name).containsExactly("A");
+        assertThat(root.totalBytes()).isEqualTo(5);
+    }
+
+    private void backdateDirectories(Path root) throws IOException {
+        FileTime past = FileTime.from(Instant.now().minus(1, ChronoUnit.DAYS));
+        try (Stream<Path> stream = Files.walk(root)) {
+            for (Path directory : stream.filter(Files::isDirectory).toList()) {
+                Files.setLastModifiedTime(directory, past);
+            }
+        }
+    }
+}